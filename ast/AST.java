@@ -1,6 +1,7 @@
 package ast;
 
 import java.util.*;
+import lexer.Symbol;
 import visitor.*;
 
 /**
@@ -8,40 +9,61 @@ import visitor.*;
  *  each node contains<ol><li> references to its kids, <li>its unique node number
  *  used for printing/debugging, <li>its decoration used for constraining
  *  and code generation, and <li>a label for code generation</ol>
- *  The AST is built by the Parser
+ *  The AST is built by the Parser; node numbers are given out by the
+ *  NodeFactory of the compilation, so they start at 1 in each compilation
 */
 public abstract class AST {
     protected ArrayList<AST> kids;
     protected int nodeNum;
     protected AST decoration;
     protected String label = "";   // label for generated code of tree
-
-    static int NodeCount = 0;
+    protected AST parent;          // node this tree was added to, if any
+    private long fingerprint;      // cached structural hash; 0 until computed
+    NodeArena arena;               // arena that handed out this node, if any
+    int epoch;                     // arena epoch in which the node was handed out
+    private final NodeKind kind = nodeKind();
 
     public AST() {
         kids = new ArrayList<AST>();
-        NodeCount++;
-        nodeNum = NodeCount;
     }
 
     public void setDecoration(AST t) {
+        checkLive();
         decoration = t;
     }
 
     public AST getDecoration() {
+        checkLive();
         return decoration;
     }
 
     public int getNodeNum() {
+        checkLive();
         return nodeNum;
     }
 
+/**
+ *  @return the kind of this node; recorded when the node is created so
+ *  this is a plain field read rather than a virtual call
+*/
+    public final NodeKind getKind() {
+        checkLive();
+        return kind;
+    }
+
+/**
+ *  @return the NodeKind constant for the subclass; each subclass of AST
+ *  must return its own constant and nothing that depends on its fields
+*/
+    protected abstract NodeKind nodeKind();
+
 /**
  *  get the AST corresponding to the kid
  *  @param i is the number of the needed kid; it starts with kid number one
  *  @return the AST for the indicated kid
 */
     public AST getKid(int i) {
+        checkLive();
         if ( (i <= 0) || (i > kidCount())) {
             return null;
         }
@@ -52,13 +74,90 @@ public abstract class AST {
  *  @return the number of kids at this node
 */
     public int kidCount() {
+        checkLive();
         return kids.size();
     }
 
     public ArrayList<AST> getKids() {
+        checkLive();
         return kids;
     }
 
+/**
+ *  @return the tree this node was added to as a kid; null for the root
+*/
+    public AST getParent() {
+        checkLive();
+        return parent;
+    }
+
+/**
+ *  @return the Symbol recorded at this node; null for trees that do not
+ *  carry a Symbol (the literal, id and operator trees override this)
+*/
+    public Symbol getSymbol() {
+        return null;
+    }
+
+/**
+ *  the structural fingerprint of this tree is a 64 bit hash of the node
+ *  kind, its Symbol and the fingerprints of its kids, in order; decorations,
+ *  labels and node numbers are not included so two parses of the same
+ *  source text produce the same fingerprints<br>
+ *  Fingerprints are computed bottom-up on first request and cached; after
+ *  an edit only the nodes on the path from the edit to the root are
+ *  recomputed (see invalidateFingerprint)
+ *  @return the fingerprint of the tree rooted at this node; never 0
+*/
+    public long getFingerprint() {
+        checkLive();
+        if (fingerprint == 0) {
+            long h = hash(FNV_OFFSET, getClass().getSimpleName());
+            Symbol s = getSymbol();
+            if (s != null) {
+                h = hash(h, s.toString());
+            }
+            h = mix(h, kids.size());
+            for (AST kid : kids) {
+                h = mix(h, kid.getFingerprint());
+            }
+            fingerprint = (h == 0) ? 1 : h;
+        }
+        return fingerprint;
+    }
+
+/**
+ *  discard the cached fingerprint of this node and of every ancestor;
+ *  the walk stops at the first ancestor that has nothing cached since
+ *  nothing above it can be cached either
+*/
+    public void invalidateFingerprint() {
+        checkLive();
+        for (AST t = this; t != null && t.fingerprint != 0; t = t.parent) {
+            t.fingerprint = 0;
+        }
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L,
+                              FNV_PRIME = 0x100000001b3L;
+
+    private static long hash(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return mix(h, s.length());
+    }
+
+    // fold v into h; the finalizer from splitmix64 keeps kid order significant
+    private static long mix(long h, long v) {
+        h = (h ^ v) * FNV_PRIME;
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
 /**
  *  accept the visitor for this node - this method must be defined in each of
  *  the subclasses of AST
@@ -68,17 +167,80 @@ public abstract class AST {
 */
     public abstract Object accept(ASTVisitor v);
 
+/**
+ *  accept a typed visitor for this node - each subclass calls the
+ *  visit method for its own class, passing itself with its own type
+ *  @param v is the TreeVisitor visiting this node
+ *  @param context is passed through to the visit method unchanged
+ *  @return the result of the visit method
+*/
+    public abstract <R, C> R accept(TreeVisitor<R, C> v, C context);
+
 
     public AST addKid(AST kid) {
+        checkLive();
+        kid.checkLive();
         kids.add(kid);
+        kid.parent = this;
+        invalidateFingerprint();
         return this;
     }
 
+/**
+ *  replace a kid of this node; the replaced tree is detached (its parent
+ *  is cleared) and the fingerprints up to the root are invalidated
+ *  @param i is the number of the kid to replace; it starts with kid number one
+ *  @param kid is the new tree for that position
+ *  @return the tree that was replaced
+*/
+    public AST setKid(int i, AST kid) {
+        checkLive();
+        kid.checkLive();
+        AST old = kids.set(i - 1, kid);
+        if (old != null && old.parent == this) {
+            old.parent = null;
+        }
+        kid.parent = this;
+        invalidateFingerprint();
+        return old;
+    }
+
+/**
+ *  remove a kid of this node; the removed tree is detached and the
+ *  fingerprints up to the root are invalidated
+ *  @param i is the number of the kid to remove; it starts with kid number one
+ *  @return the tree that was removed
+*/
+    public AST removeKid(int i) {
+        checkLive();
+        AST old = kids.remove(i - 1);
+        if (old.parent == this) {
+            old.parent = null;
+        }
+        invalidateFingerprint();
+        return old;
+    }
+
+/**
+ *  a node handed out by a NodeArena must not be used once the arena has
+ *  been reset - it may already belong to another compilation; every
+ *  public accessor and mutator of AST and its subclasses calls this
+ *  first
+*/
+    final void checkLive() {
+        if (arena != null && epoch != arena.getEpoch()) {
+            throw new IllegalStateException("node " + nodeNum + " (" +
+                getClass().getSimpleName() + ") escaped its compilation");
+        }
+    }
+
     public void setLabel(String label) {
+        checkLive();
         this.label = label;
     }
 
     public String getLabel() {
+        checkLive();
         return label;
     }
 
@@ -11,6 +11,14 @@ public class ActualArgsTree extends AST {
         return v.visitActualArgsTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitActualArgsTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.ActualArgs;
+    }
+
     @Override
     public String toString(){
         return "ActualArgsTree";
@@ -15,7 +15,16 @@ public class AddOpTree extends AST {
         return v.visitAddOpTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitAddOpTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.AddOp;
+    }
+
     public Symbol getSymbol() {
+        checkLive();
         return symbol;
     }
 
@@ -11,6 +11,14 @@ public class AssignTree extends AST {
         return v.visitAssignTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitAssignTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Assign;
+    }
+
     @Override
     public String toString(){
         return "AssignTree";
@@ -11,6 +11,14 @@ public class BlockTree extends AST {
         return v.visitBlockTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitBlockTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Block;
+    }
+
     @Override
     public String toString(){
         return "BlockTree";
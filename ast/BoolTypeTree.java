@@ -11,6 +11,14 @@ public class BoolTypeTree extends AST {
         return v.visitBoolTypeTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitBoolTypeTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.BoolType;
+    }
+
     @Override
     public String toString() {
         return "BoolTypeTree" ;
@@ -11,6 +11,14 @@ public class CallTree extends AST {
         return v.visitCallTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitCallTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Call;
+    }
+
     @Override
     public String toString(){
         return "CallTree";
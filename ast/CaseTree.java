@@ -1,6 +1,7 @@
 package ast;
 
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class CaseTree extends AST {
 
@@ -8,6 +9,14 @@ public class CaseTree extends AST {
         return v.visitCaseTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitCaseTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Case;
+    }
+
     @Override
     public String toString(){
         return "caseTree";
@@ -3,6 +3,7 @@ package ast;
 import lexer.Symbol;
 import lexer.Token;
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class CharLitTree extends AST {
     private Symbol symbol;
@@ -16,7 +17,16 @@ public class CharLitTree extends AST {
        return v.visitCharLitTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitCharLitTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.CharLit;
+    }
+
     public Symbol getSymbol() {
+        checkLive();
         return symbol;
     }
 
@@ -1,6 +1,7 @@
 package ast;
 
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class CharTree extends AST {
 
@@ -8,6 +9,14 @@ public class CharTree extends AST {
         return v.visitCharTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitCharTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Char;
+    }
+
     @Override
     public String toString(){
         return "CharTree";
@@ -11,6 +11,14 @@ public class DeclTree extends AST {
         return v.visitDeclTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitDeclTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Decl;
+    }
+
     @Override
     public String toString(){
         return "DeclTree";
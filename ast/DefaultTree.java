@@ -1,6 +1,7 @@
 package ast;
 
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class DefaultTree extends AST {
 
@@ -8,6 +9,14 @@ public class DefaultTree extends AST {
         return v.visitDefaultTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitDefaultTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Default;
+    }
+
     @Override
     public String toString(){
         return "defaultTree";
@@ -11,6 +11,14 @@ public class FormalsTree extends AST {
         return v.visitFormalsTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitFormalsTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Formals;
+    }
+
     @Override
     public String toString(){
         return "FormalsTree";
@@ -11,6 +11,14 @@ public class FunctionDeclTree extends AST {
         return v.visitFunctionDeclTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitFunctionDeclTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.FunctionDecl;
+    }
+
     @Override
     public String toString(){
         return "FunctionDeclTree";
@@ -7,6 +7,7 @@ import visitor.*;
 public class IdTree extends AST {
     private Symbol symbol;
     private int frameOffset = -1;   // stack location for codegen
+    private int depth = -1;         // number of functions the variable is declared in
 
 /**
  *  @param tok - record the symbol from the token Symbol
@@ -19,7 +20,16 @@ public class IdTree extends AST {
         return v.visitIdTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitIdTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Id;
+    }
+
     public Symbol getSymbol() {
+        checkLive();
         return symbol;
     }
 
@@ -29,18 +39,35 @@ public class IdTree extends AST {
     }
 
 /**
- *  @param i is the offset for this variable as determined by the code generator
+ *  record the address of the variable as determined by the constrainer;
+ *  the IdTree of a decl and every IdTree that refers to it get the
+ *  decl's address
+ *  @param depth is the number of function decls the variable's decl is
+ *  nested in; 0 for variables of the main program
+ *  @param slot is the offset of the variable in its frame
 */
-    public void setFrameOffset(int i) {
-        frameOffset = i;
+    public void setAddress(int depth, int slot) {
+        checkLive();
+        this.depth = depth;
+        frameOffset = slot;
     }
 
 /**
  *  @return the frame offset for this variable - used by codegen
 */
     public int getFrameOffset() {
+        checkLive();
         return frameOffset;
     }
 
+/**
+ *  @return the function depth of the variable's decl or -1 if the tree
+ *  has no address
+*/
+    public int getDepth() {
+        checkLive();
+        return depth;
+    }
+
 }
 
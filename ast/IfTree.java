@@ -11,6 +11,14 @@ public class IfTree extends AST {
         return v.visitIfTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitIfTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.If;
+    }
+
     @Override
     public String toString(){
         return "IfTree";
@@ -21,7 +21,16 @@ public class IntTree extends AST {
         return v.visitIntTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitIntTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Int;
+    }
+
     public Symbol getSymbol() {
+        checkLive();
         return symbol;
     }
 
@@ -11,6 +11,14 @@ public class IntTypeTree extends AST {
         return v.visitIntTypeTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitIntTypeTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.IntType;
+    }
+
     @Override
     public String toString(){
         return "IntTypeTree";
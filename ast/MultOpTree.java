@@ -18,7 +18,16 @@ public class MultOpTree extends AST {
         return v.visitMultOpTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitMultOpTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.MultOp;
+    }
+
     public Symbol getSymbol() {
+        checkLive();
         return symbol;
     }
 
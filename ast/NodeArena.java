@@ -0,0 +1,95 @@
+package ast;
+
+import java.util.*;
+
+/**
+ *  NodeArena is an opt-in NodeFactory for long-running processes (e.g. a
+ *  compile server) that compile many programs on the same worker thread<br>
+ *  Trees handed out during one compilation are remembered; when the
+ *  compilation is finished reset() takes back their kids lists in one step
+ *  and the next compilation gives them to its trees, so the lists and the
+ *  arrays they have grown are reused instead of allocated again<br>
+ *  Safety: the trees themselves are never handed out twice. Every tree
+ *  carries the arena epoch it was handed out in and reset() starts a new
+ *  epoch, so reading or changing a tree after its compilation ended always
+ *  throws an IllegalStateException. The list returned by getKids() is the
+ *  tree's own, so it must not be kept past the compilation either; with
+ *  checking turned on reset() takes back nothing<br>
+ *  An arena is not thread safe - use one per worker thread
+*/
+public class NodeArena extends NodeFactory {
+    private ArrayDeque<ArrayList<AST>> free = new ArrayDeque<ArrayList<AST>>();
+    private ArrayList<AST> live = new ArrayList<AST>();
+    private int epoch = 1;
+    private boolean checking = false;
+    private int allocated, recycled;
+
+    public NodeArena() {}
+
+/**
+ *  @param checking if true reset() never recycles kids lists; used to
+ *  find code that keeps a kids list past its compilation
+*/
+    public NodeArena(boolean checking) {
+        this.checking = checking;
+    }
+
+    int getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    protected AST adopt(AST t) {
+        super.adopt(t);
+        ArrayList<AST> kids = free.poll();
+        if (kids != null) {
+            t.kids = kids;
+            recycled++;
+        } else {
+            allocated++;
+        }
+        t.arena = this;
+        t.epoch = epoch;
+        live.add(t);
+        return t;
+    }
+
+/**
+ *  End the current compilation: every tree handed out since the last
+ *  reset becomes invalid and (unless checking) gives up its kids list for
+ *  reuse; the next compilation numbers its trees from 1 again
+*/
+    public void reset() {
+        epoch++;
+        restartNumbering();
+        if (!checking) {
+            for (AST t : live) {
+                t.kids.clear();
+                free.push(t.kids);
+                t.kids = null;      // t is dead; checkLive stops any use first
+            }
+        }
+        live.clear();
+    }
+
+/**
+ *  @return the number of trees handed out in the current compilation
+*/
+    public int liveCount() {
+        return live.size();
+    }
+
+/**
+ *  @return the number of trees handed out with a new kids list
+*/
+    public int allocatedCount() {
+        return allocated;
+    }
+
+/**
+ *  @return the number of trees handed out with a recycled kids list
+*/
+    public int recycledCount() {
+        return recycled;
+    }
+}
@@ -0,0 +1,147 @@
+package ast;
+
+import lexer.Token;
+
+/**
+ *  NodeFactory creates the trees the Parser builds; this class simply
+ *  allocates a new tree for each request<br>
+ *  The factory also numbers the trees it hands out - 1, 2, 3, ... - so
+ *  each compilation, with its own factory, numbers its trees from 1<br>
+ *  A NodeArena is a NodeFactory that gives the new trees recycled kids
+ *  lists, through the adopt hook
+*/
+public class NodeFactory {
+    private int nodeCount = 0;
+
+/**
+ *  give the tree the next node number
+ *  @param t is the tree being handed to the caller
+ *  @return t
+*/
+    protected AST adopt(AST t) {
+        t.nodeNum = ++nodeCount;
+        return t;
+    }
+
+/**
+ *  @return the number of trees handed out since the numbering started
+*/
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+/**
+ *  number the next tree handed out 1 again
+*/
+    protected void restartNumbering() {
+        nodeCount = 0;
+    }
+
+    public AST programTree() {
+        return adopt(new ProgramTree());
+    }
+
+    public AST blockTree() {
+        return adopt(new BlockTree());
+    }
+
+    public AST switchBlockTree() {
+        return adopt(new SwitchBlockTree());
+    }
+
+    public AST caseTree() {
+        return adopt(new CaseTree());
+    }
+
+    public AST defaultTree() {
+        return adopt(new DefaultTree());
+    }
+
+    public AST functionDeclTree() {
+        return adopt(new FunctionDeclTree());
+    }
+
+    public AST declTree() {
+        return adopt(new DeclTree());
+    }
+
+    public AST formalsTree() {
+        return adopt(new FormalsTree());
+    }
+
+    public AST actualArgsTree() {
+        return adopt(new ActualArgsTree());
+    }
+
+    public AST intTypeTree() {
+        return adopt(new IntTypeTree());
+    }
+
+    public AST boolTypeTree() {
+        return adopt(new BoolTypeTree());
+    }
+
+    public AST stringTypeTree() {
+        return adopt(new StringTypeTree());
+    }
+
+    public AST charTree() {
+        return adopt(new CharTree());
+    }
+
+    public AST ifTree() {
+        return adopt(new IfTree());
+    }
+
+    public AST unlessTree() {
+        return adopt(new UnlessTree());
+    }
+
+    public AST whileTree() {
+        return adopt(new WhileTree());
+    }
+
+    public AST returnTree() {
+        return adopt(new ReturnTree());
+    }
+
+    public AST assignTree() {
+        return adopt(new AssignTree());
+    }
+
+    public AST switchTree() {
+        return adopt(new SwitchTree());
+    }
+
+    public AST callTree() {
+        return adopt(new CallTree());
+    }
+
+    public AST idTree(Token tok) {
+        return adopt(new IdTree(tok));
+    }
+
+    public AST intTree(Token tok) {
+        return adopt(new IntTree(tok));
+    }
+
+    public AST charLitTree(Token tok) {
+        return adopt(new CharLitTree(tok));
+    }
+
+    public AST stringLitTree(Token tok) {
+        return adopt(new StringLitTree(tok));
+    }
+
+    public AST relOpTree(Token tok) {
+        return adopt(new RelOpTree(tok));
+    }
+
+    public AST addOpTree(Token tok) {
+        return adopt(new AddOpTree(tok));
+    }
+
+    public AST multOpTree(Token tok) {
+        return adopt(new MultOpTree(tok));
+    }
+}
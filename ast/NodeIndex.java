@@ -0,0 +1,128 @@
+package ast;
+
+import java.util.*;
+
+/**
+ *  NodeIndex records, for each kind of tree, the node numbers of the trees
+ *  of that kind in the order they were created; the Parser fills it in as it
+ *  builds the AST so passes that only care about one kind of node (e.g. all
+ *  of the CallTrees) can go straight to those nodes instead of visiting
+ *  the whole tree<br>
+ *  Node numbers are kept in plain int arrays; the trees themselves (and the
+ *  source line each was built at, when known) are found through tables
+ *  indexed by node number
+*/
+public class NodeIndex {
+    private IntList[] numbers = new IntList[NodeKind.values().length];  // by kind ordinal
+    private AST[] nodes = new AST[64];
+    private int[] lines = new int[64];  // source line for each tree; 0 if unknown
+    private int base = -1;      // node number of nodes[0]
+    private int size = 0;
+
+    private static final int[] NONE = new int[0];
+
+/**
+ *  add the tree to the index
+ *  @param t is a newly created tree
+ *  @return t so the call can wrap the creation of the tree
+*/
+    public <T extends AST> T record(T t) {
+        return record(t, -1);
+    }
+
+/**
+ *  add the tree to the index along with the source line it came from
+ *  @param t is a newly created tree
+ *  @param line is the source line number of t, or -1 if not known
+ *  @return t so the call can wrap the creation of the tree
+*/
+    public <T extends AST> T record(T t, int line) {
+        IntList nums = numbers[t.getKind().ordinal()];
+        if (nums == null) {
+            nums = new IntList();
+            numbers[t.getKind().ordinal()] = nums;
+        }
+        nums.add(t.getNodeNum());
+
+        if (base < 0) {
+            base = t.getNodeNum();
+        }
+        int slot = t.getNodeNum() - base;
+        if (slot >= nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, slot + 1));
+            lines = Arrays.copyOf(lines, nodes.length);
+        }
+        nodes[slot] = t;
+        lines[slot] = line + 1;
+        size = Math.max(size, slot + 1);
+        return t;
+    }
+
+/**
+ *  @param kind is the kind of tree wanted, e.g. NodeKind.Call
+ *  @return the node numbers of all trees of that kind, in creation order
+*/
+    public int[] getNodeNumbers(NodeKind kind) {
+        IntList nums = numbers[kind.ordinal()];
+        return (nums == null) ? NONE : Arrays.copyOf(nums.items, nums.size);
+    }
+
+/**
+ *  @return the number of trees of the given kind
+*/
+    public int count(NodeKind kind) {
+        IntList nums = numbers[kind.ordinal()];
+        return (nums == null) ? 0 : nums.size;
+    }
+
+/**
+ *  @param kind is the kind of tree wanted, e.g. NodeKind.FunctionDecl
+ *  @return all trees of that kind, in creation order
+*/
+    public List<AST> getNodes(NodeKind kind) {
+        IntList nums = numbers[kind.ordinal()];
+        int n = (nums == null) ? 0 : nums.size;
+        ArrayList<AST> result = new ArrayList<AST>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(getNode(nums.items[i]));
+        }
+        return result;
+    }
+
+/**
+ *  @param nodeNum is the number of a tree that was recorded in this index
+ *  @return the tree, or null if no such tree was recorded
+*/
+    public AST getNode(int nodeNum) {
+        int slot = nodeNum - base;
+        if (base < 0 || slot < 0 || slot >= size) {
+            return null;
+        }
+        return nodes[slot];
+    }
+
+/**
+ *  @param nodeNum is the number of a tree that was recorded in this index
+ *  @return the source line the tree was built at, or -1 if not known
+*/
+    public int getLine(int nodeNum) {
+        int slot = nodeNum - base;
+        if (base < 0 || slot < 0 || slot >= size) {
+            return -1;
+        }
+        return lines[slot] - 1;
+    }
+
+    // growable array of node numbers for one kind of tree
+    private static class IntList {
+        int[] items = new int[8];
+        int size = 0;
+
+        void add(int n) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = n;
+        }
+    }
+}
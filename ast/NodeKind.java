@@ -0,0 +1,32 @@
+package ast;
+
+/**
+ *  NodeKind names the kind of each AST node - one constant per subclass
+ *  of AST, e.g. NodeKind.FunctionDecl for a FunctionDeclTree<br>
+ *  Each node records its kind when it is created so code can switch on
+ *  the kind (see ASTVisitor.dispatch) instead of relying on double
+ *  dispatch through accept
+*/
+public enum NodeKind {
+    Program("Program"), Block("Block"), FunctionDecl("FunctionDecl"), Call("Call"),
+    Decl("Decl"), IntType("IntType"), BoolType("BoolType"), Formals("Formals"),
+    ActualArgs("ActualArgs"), If("If"), While("While"), Return("Return"),
+    Assign("Assign"), Int("Int"), Id("Id"), RelOp("RelOp"),
+    AddOp("AddOp"), MultOp("MultOp"), Switch("Switch"), Case("Case"),
+    SwitchBlock("Switch Block"), Default("Default"), Unless("Unless"), StringType("StringType"),
+    Char("Char"), StringLit("StringLit"), CharLit("CharLit");
+
+    private String label;
+
+    NodeKind(String label) {
+        this.label = label;
+    }
+
+/**
+ *  @return the name used for nodes of this kind in printed trees,
+ *  e.g. "FunctionDecl"
+*/
+    public String getLabel() {
+        return label;
+    }
+}
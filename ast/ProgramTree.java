@@ -11,6 +11,14 @@ public class ProgramTree extends AST {
         return v.visitProgramTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitProgramTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Program;
+    }
+
     @Override
     public String toString(){
         return "Program";
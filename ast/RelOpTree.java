@@ -18,7 +18,16 @@ public class RelOpTree extends AST {
         return v.visitRelOpTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitRelOpTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.RelOp;
+    }
+
     public Symbol getSymbol() {
+        checkLive();
         return symbol;
     }
 
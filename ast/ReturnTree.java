@@ -11,6 +11,14 @@ public class ReturnTree extends AST {
         return v.visitReturnTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitReturnTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Return;
+    }
+
     @Override
     public String toString(){
         return "return";
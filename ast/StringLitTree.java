@@ -3,6 +3,7 @@ package ast;
 import lexer.Symbol;
 import lexer.Token;
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class StringLitTree extends AST {
     private Symbol symbol;
@@ -14,7 +15,16 @@ public class StringLitTree extends AST {
         return v.visitStringLitTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitStringLitTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.StringLit;
+    }
+
     public Symbol getSymbol() {
+        checkLive();
         return symbol;
     }
 
@@ -1,12 +1,21 @@
 package ast;
 
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class StringTypeTree extends AST {
 
     public Object accept(ASTVisitor v) {
         return v.visitStringTypeTree(this);
     }
+
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitStringTypeTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.StringType;
+    }
     @Override
     public String toString(){
         return "StringTypeTree";
@@ -1,6 +1,7 @@
 package ast;
 
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class SwitchBlockTree extends AST {
 
@@ -8,6 +9,14 @@ public class SwitchBlockTree extends AST {
         return v.visitSwitchBlockTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitSwitchBlockTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.SwitchBlock;
+    }
+
     @Override
     public String toString(){
         return "switchBlockTree";
@@ -1,13 +1,139 @@
 package ast;
 
+import java.util.Arrays;
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
+/**
+ *  SwitchTree has the switch subject (an IdTree) and a SwitchBlockTree
+ *  of CaseTrees and DefaultTrees as kids<br>
+ *  The Constrainer records how the switch should be dispatched (see
+ *  Dispatch) with the case labels sorted by value and the CaseTree of
+ *  each label, so the code generator doesn't have to look at the labels
+ *  again
+*/
 public class SwitchTree extends AST{
 
+/**
+ *  DenseRange: int or char labels that fill enough of the range
+ *  getLow() .. getHigh() that a jump table is cheapest<br>
+ *  Sparse: int or char labels that are better searched for<br>
+ *  StringKeyed: String labels
+*/
+    public enum Dispatch {
+        DenseRange, Sparse, StringKeyed
+    }
+
+    private Dispatch dispatch;
+    private int[] keys;
+    private String[] stringKeys;
+    private AST[] cases;
+    private AST defaultCase;
+
     public Object accept(ASTVisitor v) {
         return v.visitSwitchTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitSwitchTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Switch;
+    }
+
+/**
+ *  record the dispatch of a switch on int or char values
+ *  @param keys are the label values in increasing order
+ *  @param cases has the CaseTree of keys[i] at i
+ *  @param defaultCase is the DefaultTree or null if there isn't one
+*/
+    public void setDispatch(Dispatch dispatch, int[] keys, AST[] cases, AST defaultCase) {
+        checkLive();
+        this.dispatch = dispatch;
+        this.keys = keys;
+        this.stringKeys = null;
+        this.cases = cases;
+        this.defaultCase = defaultCase;
+    }
+
+/**
+ *  record the dispatch of a switch on String values
+ *  @param keys are the label values (without quotes) in increasing order
+*/
+    public void setDispatch(String[] keys, AST[] cases, AST defaultCase) {
+        checkLive();
+        this.dispatch = Dispatch.StringKeyed;
+        this.keys = null;
+        this.stringKeys = keys;
+        this.cases = cases;
+        this.defaultCase = defaultCase;
+    }
+
+/**
+ *  @return the dispatch recorded by the Constrainer or null if the switch
+ *  hasn't been constrained (or had errors in its labels)
+*/
+    public Dispatch getDispatch() {
+        checkLive();
+        return dispatch;
+    }
+
+/**
+ *  @return the int or char label values in increasing order
+*/
+    public int[] getKeys() {
+        checkLive();
+        return keys;
+    }
+
+    public String[] getStringKeys() {
+        checkLive();
+        return stringKeys;
+    }
+
+    public int caseCount() {
+        checkLive();
+        return cases.length;
+    }
+
+/**
+ *  @param i is the position of a label in getKeys() or getStringKeys()
+ *  @return the CaseTree with that label
+*/
+    public AST getCase(int i) {
+        checkLive();
+        return cases[i];
+    }
+
+/**
+ *  @return the CaseTree labelled with the int or char value key or
+ *  null if there is none
+*/
+    public AST findCase(int key) {
+        checkLive();
+        int i = Arrays.binarySearch(keys, key);
+        return (i < 0) ? null : cases[i];
+    }
+
+    public AST getDefault() {
+        checkLive();
+        return defaultCase;
+    }
+
+/**
+ *  @return the smallest label value of an int or char switch
+*/
+    public int getLow() {
+        checkLive();
+        return keys[0];
+    }
+
+    public int getHigh() {
+        checkLive();
+        return keys[keys.length - 1];
+    }
+
     @Override
     public String toString(){
         return "switch";
@@ -1,6 +1,7 @@
 package ast;
 
 import visitor.ASTVisitor;
+import visitor.TreeVisitor;
 
 public class UnlessTree extends AST{
 
@@ -8,6 +9,14 @@ public class UnlessTree extends AST{
         return v.visitUnlessTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitUnlessTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.Unless;
+    }
+
     @Override
     public String toString(){
         return "unlessTree";
@@ -11,6 +11,14 @@ public class WhileTree extends AST {
         return v.visitWhileTree(this);
     }
 
+    public <R, C> R accept(TreeVisitor<R, C> v, C context) {
+        return v.visitWhileTree(this, context);
+    }
+
+    protected NodeKind nodeKind() {
+        return NodeKind.While;
+    }
+
     @Override
     public String toString(){
         return "WhileTree";
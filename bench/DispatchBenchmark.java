@@ -0,0 +1,99 @@
+package bench;
+
+import ast.*;
+import parser.Parser;
+import visitor.ASTVisitor;
+
+/**
+ *  DispatchBenchmark compares the two ways an ASTVisitor can walk a tree:
+ *  double dispatch through AST.accept and the single switch on NodeKind
+ *  in ASTVisitor.dispatch<br>
+ *  The tree is built by parsing the given source file and grafting copies
+ *  of its block onto the program block until the tree is large; each
+ *  mode is warmed up before it is timed and the modes are interleaved
+ *  so neither benefits from running last<br>
+ *  usage: java bench.DispatchBenchmark file.x [copies] [rounds]
+*/
+public class DispatchBenchmark {
+
+    // visits every node; the per-node work is kept trivial so the
+    // timing is dominated by the dispatch itself
+    static class NodeCounter extends ASTVisitor {
+        long nodes = 0;
+
+        Object count(AST t) {
+            nodes++;
+            visitKids(t);
+            return null;
+        }
+
+        public Object visitProgramTree(AST t) { return count(t); }
+        public Object visitBlockTree(AST t) { return count(t); }
+        public Object visitFunctionDeclTree(AST t) { return count(t); }
+        public Object visitCallTree(AST t) { return count(t); }
+        public Object visitDeclTree(AST t) { return count(t); }
+        public Object visitIntTypeTree(AST t) { return count(t); }
+        public Object visitBoolTypeTree(AST t) { return count(t); }
+        public Object visitFormalsTree(AST t) { return count(t); }
+        public Object visitActualArgsTree(AST t) { return count(t); }
+        public Object visitIfTree(AST t) { return count(t); }
+        public Object visitWhileTree(AST t) { return count(t); }
+        public Object visitReturnTree(AST t) { return count(t); }
+        public Object visitAssignTree(AST t) { return count(t); }
+        public Object visitIntTree(AST t) { return count(t); }
+        public Object visitIdTree(AST t) { return count(t); }
+        public Object visitRelOpTree(AST t) { return count(t); }
+        public Object visitAddOpTree(AST t) { return count(t); }
+        public Object visitMultOpTree(AST t) { return count(t); }
+        public Object visitSwitchTree(AST t) { return count(t); }
+        public Object visitCaseTree(AST t) { return count(t); }
+        public Object visitSwitchBlockTree(AST t) { return count(t); }
+        public Object visitDefaultTree(AST t) { return count(t); }
+        public Object visitUnlessTree(AST t) { return count(t); }
+        public Object visitStringTypeTree(AST t) { return count(t); }
+        public Object visitCharTree(AST t) { return count(t); }
+        public Object visitStringLitTree(AST t) { return count(t); }
+        public Object visitCharLitTree(AST t) { return count(t); }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("usage: java bench.DispatchBenchmark file.x [copies] [rounds]");
+            System.exit(1);
+        }
+        int copies = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+        AST tree = new Parser(args[0]).execute();
+        for (int i = 0; i < copies; i++) {
+            tree.getKid(1).addKid(new Parser(args[0]).execute().getKid(1));
+        }
+
+        NodeCounter accept = new NodeCounter(),
+                    dispatch = new NodeCounter();
+        dispatch.setSwitchDispatch(true);
+        for (int i = 0; i < rounds; i++) {       // warm up
+            time(accept, tree, false);
+            time(dispatch, tree, true);
+        }
+        long acceptTime = 0, dispatchTime = 0;
+        for (int i = 0; i < rounds; i++) {
+            acceptTime += time(accept, tree, false);
+            dispatchTime += time(dispatch, tree, true);
+        }
+        long nodes = accept.nodes / (2 * rounds);
+        System.out.println("nodes per walk: " + nodes);
+        System.out.printf("accept:   %.2f ns/node%n", (double)acceptTime / rounds / nodes);
+        System.out.printf("dispatch: %.2f ns/node%n", (double)dispatchTime / rounds / nodes);
+    }
+
+    static long time(NodeCounter v, AST tree, boolean switched) {
+        long start = System.nanoTime();
+        if (switched) {
+            v.dispatch(tree);
+        } else {
+            tree.accept(v);
+        }
+        return System.nanoTime() - start;
+    }
+}
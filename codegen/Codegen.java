@@ -1,5 +1,6 @@
 package codegen;
 
+import compiler.CompilationContext;
 import constrain.*;
 import visitor.*;
 import java.util.*;
@@ -75,12 +76,14 @@ class Block {
 }
 
 /**
- *  The Codegen class will walk the AST, determine and set variable
- *  offsets and generate the bytecodes
+ *  The Codegen class will walk the AST and generate the bytecodes; the
+ *  frame offsets of variables were recorded on their IdTrees by the
+ *  constrainer
 */
 public class Codegen extends ASTVisitor {
 
     AST t;
+    CompilationContext context;   // holds the intrinsic trees built by the Constrainer
     Stack<Frame> frameSizes;   // used for tracking the frame sizes;
                         // when we start generating code for a
                         // function we'll push a new entry on the
@@ -88,18 +91,31 @@ public class Codegen extends ASTVisitor {
    
     Program program;    // program will contain the generated bytecodes
     int labelNum;       // used for creating new, unique labels
+    Set<AST> called;    // the functions that are called; null if unknown
 
 /**
  *  Create a new code generator based on the given AST
- *  @param t is the AST that will be visited
+ *  @param t is the AST that will be visited; it has been constrained
+ *  @param context is the compilation t belongs to
 */
-    public Codegen(AST t) {
+    public Codegen(AST t, CompilationContext context) {
         this.t = t;
+        this.context = context;
         program = new Program();
         frameSizes = new Stack<Frame>();
         labelNum = 0;
     }
 
+/**
+ *  @param called are the function decls that are called (see
+ *  rewrite.DeadCodeEliminator); codes for the read and write intrinsics
+ *  are only generated if they're in the set. By default both are
+ *  generated
+*/
+    public void setCalledFunctions(Set<AST> called) {
+        this.called = called;
+    }
+
 /** visit all the nodes in the AST/gen bytecodes
 */
     public Program execute() {
@@ -178,21 +194,25 @@ public class Codegen extends ASTVisitor {
         // as any other function
         String readLabel = "Read",
                writeLabel = "Write";
-        AST readTree = Constrainer.readTree,
-            writeTree = Constrainer.writeTree;
-        readTree.setLabel(readLabel);
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,readLabel));
-        storeop(new Code(Codes.ByteCodes.READ));
-        storeop(new Code(Codes.ByteCodes.RETURN));
-
-        writeTree.setLabel(writeLabel);
-        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,writeLabel));
-        String formal = ((IdTree)(writeTree.getKid(3).getKid(1).getKid(2))).
-                                 getSymbol().toString();
-        storeop(new VarOpcode(Codes.ByteCodes.LOAD,0,formal));
-        // write has one actual arg - in frame offset 0
-        storeop(new Code(Codes.ByteCodes.WRITE));
-        storeop(new Code(Codes.ByteCodes.RETURN));
+        AST readTree = context.getIntrinsics().readTree,
+            writeTree = context.getIntrinsics().writeTree;
+        if (called == null || called.contains(readTree)) {
+            readTree.setLabel(readLabel);
+            storeop(new LabelOpcode(Codes.ByteCodes.LABEL,readLabel));
+            storeop(new Code(Codes.ByteCodes.READ));
+            storeop(new Code(Codes.ByteCodes.RETURN));
+        }
+
+        if (called == null || called.contains(writeTree)) {
+            writeTree.setLabel(writeLabel);
+            storeop(new LabelOpcode(Codes.ByteCodes.LABEL,writeLabel));
+            String formal = ((IdTree)(writeTree.getKid(3).getKid(1).getKid(2))).
+                                     getSymbol().toString();
+            storeop(new VarOpcode(Codes.ByteCodes.LOAD,0,formal));
+            // write has one actual arg - in frame offset 0
+            storeop(new Code(Codes.ByteCodes.WRITE));
+            storeop(new Code(Codes.ByteCodes.RETURN));
+        }
    }
 
 /** <pre>
@@ -237,8 +257,8 @@ public class Codegen extends ASTVisitor {
         return null; }
 
 /** <pre>
- *  Generate codes for the function declaration; we'll also record
- *  the frame offsets for the formal parameters<br><br>
+ *  Generate codes for the function declaration; the frame offsets of
+ *  the formal parameters were assigned by the constrainer<br><br>
  *  GOTO continue   -- branch around codes for the function
  *  LABEL functionLabel
  *  &LT;generate codes for the function body&GT;
@@ -259,11 +279,8 @@ public class Codegen extends ASTVisitor {
         storeop(new LabelOpcode(Codes.ByteCodes.GOTO,continueLabel));
         openFrame();  // track Frame changes within function
         storeop(new LabelOpcode(Codes.ByteCodes.LABEL,funcLabel));
-        // now record the frame offsets for the formals
         for (AST decl : formals.getKids()) {
-            IdTree id = (IdTree)(decl.getKid(2));
-            id.setFrameOffset(frameSize());
-            decl.setLabel(id.getSymbol().toString());
+            decl.setLabel(decl.getKid(2).getSymbol().toString());
             changeFrame(1);  // ensure frame size includes space for variables
         }
         block.accept(this);
@@ -300,7 +317,6 @@ public class Codegen extends ASTVisitor {
  *  Generate codes for the Decl tree:<br><br>
  *
  *  LIT 0  -- 0 is the initial value for the variable
- *  record the frame offset of this variable for future references
  *  </pre>
 */
     public Object visitDeclTree(AST t) {
@@ -308,7 +324,6 @@ public class Codegen extends ASTVisitor {
         IdTree id = (IdTree)t.getKid(2);
         String idLabel = id.getSymbol().toString();
         t.setLabel(idLabel);  //set label in dcln node
-        id.setFrameOffset(frameSize());
         storeop(new VarOpcode(Codes.ByteCodes.LIT,0,idLabel));
         //reserve space in frame for new variable; init to 0
         return null;
@@ -341,6 +356,7 @@ public class Codegen extends ASTVisitor {
  *  &LT;generate codes for the <i>else</i> tree - 3rd kid&GT;
  *  LABEL continue
  *  </pre>
+ *  Without an else there are no codes between the two labels
 */
     public Object visitIfTree(AST t) {
         //System.out.println("visitIfTree");
@@ -351,7 +367,9 @@ public class Codegen extends ASTVisitor {
         t.getKid(2).accept(this);
         storeop(new LabelOpcode(Codes.ByteCodes.GOTO,continueLabel));
         storeop(new LabelOpcode(Codes.ByteCodes.LABEL,elseLabel));
-        t.getKid(3).accept(this);
+        if (t.kidCount() >= 3) {
+            t.getKid(3).accept(this);
+        }
         storeop(new LabelOpcode(Codes.ByteCodes.LABEL,continueLabel));
         return null; }
 
@@ -405,7 +423,7 @@ public class Codegen extends ASTVisitor {
         //System.out.println("visitAssignTree");
         IdTree id = (IdTree)t.getKid(1);
         String vname = id.getSymbol().toString();
-        int addr = ((IdTree)(id.getDecoration().getKid(2))).getFrameOffset();
+        int addr = id.getFrameOffset();
         t.getKid(2).accept(this);
         storeop(new VarOpcode(Codes.ByteCodes.STORE,addr,vname));
         return null;
@@ -426,14 +444,15 @@ public class Codegen extends ASTVisitor {
 
 /** <pre>
  *  Load a variable:
- *  LOAD <i>offset</i>  -- load variable using the offset recorded in the AST
+ *  LOAD <i>offset</i>  -- load variable using the offset the constrainer
+ *  recorded on the IdTree
  *  </pre>
 */
     public Object visitIdTree(AST t) {
         //System.out.println("visitIdTree");
-        AST decl = t.getDecoration();
-        int addr = ((IdTree)(decl.getKid(2))).getFrameOffset();
-        String vname = ((IdTree)t).getSymbol().toString();
+        IdTree id = (IdTree)t;
+        int addr = id.getFrameOffset();
+        String vname = id.getSymbol().toString();
         storeop(new VarOpcode(Codes.ByteCodes.LOAD,addr,vname));
         return null;
     }
@@ -489,24 +508,67 @@ public class Codegen extends ASTVisitor {
         return null;
     }
 
-    //added
-    //TODO: implement
-    public Object visitSwitchTree(AST tree){
+/** <pre>
+ *  Generate codes for the switch tree; the constrainer recorded the
+ *  sorted case values and how to dispatch on them:<br><br>
+ *
+ *  LOAD <i>offset</i>      -- the switch value
+ *  TABLESWITCH ...    -- DenseRange: index a table of labels
+ *  or LOOKUPSWITCH ...    Sparse: binary search the case values
+ *  LABEL case         -- for each case and the default, in order
+ *  &LT;generate codes for the case's assignment&GT;
+ *  GOTO endswitch     -- cases don't fall through
+ *  LABEL endswitch
+ *  </pre>
+ *  Without a default, values that have no case branch to endswitch<br>
+ *  A switch on a String is rejected by the Constrainer, so the dispatch
+ *  is always DenseRange or Sparse here
+*/
+    public Object visitSwitchTree(AST t) {
+        SwitchTree s = (SwitchTree)t;
+        String endLabel = newLabel("endswitch");
+        for (AST c : t.getKid(2).getKids()) {
+            c.setLabel(newLabel(c.getKind() == NodeKind.Case ? "case" : "default"));
+        }
+        String defaultLabel = (s.getDefault() == null) ? endLabel : s.getDefault().getLabel();
+        t.getKid(1).accept(this);
+        if (s.getDispatch() == SwitchTree.Dispatch.DenseRange) {
+            String[] labels = new String[s.getHigh() - s.getLow() + 1];
+            Arrays.fill(labels, defaultLabel);
+            for (int i = 0; i < s.caseCount(); i++) {
+                labels[s.getKeys()[i] - s.getLow()] = s.getCase(i).getLabel();
+            }
+            storeop(SwitchOpcode.table(s.getLow(), labels, defaultLabel));
+        } else {
+            String[] labels = new String[s.caseCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = s.getCase(i).getLabel();
+            }
+            storeop(SwitchOpcode.lookup(s.getKeys(), labels, defaultLabel));
+        }
+        for (AST c : t.getKid(2).getKids()) {
+            storeop(new LabelOpcode(Codes.ByteCodes.LABEL,c.getLabel()));
+            c.accept(this);
+            storeop(new LabelOpcode(Codes.ByteCodes.GOTO,endLabel));
+        }
+        storeop(new LabelOpcode(Codes.ByteCodes.LABEL,endLabel));
         return null;
     }
 
     @Override
-    public Object visitCaseTree(AST tree) {
+    public Object visitCaseTree(AST t) {
+        t.getKid(2).accept(this);
         return null;
     }
 
     @Override
-    public Object visitSwitchBlockTree(AST tree) {
+    public Object visitSwitchBlockTree(AST t) {
         return null;
     }
 
     @Override
-    public Object visitDefaultTree(AST tree) {
+    public Object visitDefaultTree(AST t) {
+        t.getKid(1).accept(this);
         return null;
     }
 
@@ -24,7 +24,8 @@ package codegen;
 public class Codes {
 	
 	public static enum ByteCodes {
-		HALT,POP,FALSEBRANCH,GOTO,STORE,LOAD,LIT,ARGS,CALL,RETURN,BOP,READ,WRITE,LABEL
+		HALT,POP,FALSEBRANCH,GOTO,STORE,LOAD,LIT,ARGS,CALL,RETURN,BOP,READ,WRITE,LABEL,
+		TABLESWITCH,LOOKUPSWITCH,MAXSTACK
 	};
 	
 	/*
@@ -42,6 +43,11 @@ public class Codes {
     READ         read
     WRITE        write
     LABEL        label <label>
+    TABLESWITCH  tableswitch low high <default> <label-low> ... <label-high>
+    LOOKUPSWITCH lookupswitch n <default> key1 <label1> ... keyn <labeln>
+                 both pop the switch value and branch; see SwitchOpcode
+    MAXSTACK     maxstack n  -- the frame of the main program or of the
+                 function whose label is just before it grows to n; see Verifier
 	*/
 
 public static java.util.HashMap<ByteCodes,Integer> frameChange = new java.util.HashMap<ByteCodes,Integer>();
@@ -70,6 +76,9 @@ public static final int UnknownChange = 99;
     frameChange.put(ByteCodes.READ,1);             // read in new value
     frameChange.put(ByteCodes.WRITE,0);            // write value; leave on top
     frameChange.put(ByteCodes.LABEL,0);            // branch label
+    frameChange.put(ByteCodes.TABLESWITCH,-1);     // pop switch value
+    frameChange.put(ByteCodes.LOOKUPSWITCH,-1);    // pop switch value
+    frameChange.put(ByteCodes.MAXSTACK,0);         // not executed
     }
 
 }
\ No newline at end of file
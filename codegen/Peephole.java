@@ -0,0 +1,296 @@
+package codegen;
+
+import java.util.*;
+
+/**
+ *  Peephole removes and rewrites wasteful bytecode sequences in a
+ *  generated Program. Each Rule looks at a code and the codes just
+ *  after it; the enabled rules are applied in turn, over the whole
+ *  program, until a pass changes nothing<br>
+ *  e.g. <pre>
+ *     new Peephole().execute(new Codegen(t, context).execute())
+ *  </pre>
+ *  getBefore, getAfter and getCount report what was done
+*/
+public class Peephole {
+
+/**
+ *  PopZero: POP 0 is removed<br>
+ *  GotoNext: GOTO L is removed when LABEL L follows it (with only
+ *  labels in between)<br>
+ *  GotoChain: a branch to a label that is followed by GOTO M branches
+ *  to M instead; this covers GOTO, FALSEBRANCH and the switch labels<br>
+ *  Unreachable: the codes after GOTO, RETURN, HALT or a switch, up to
+ *  the next label, are removed, e.g. the gratis LIT 0; RETURN after a
+ *  return at the end of a function<br>
+ *  LoadStore: LOAD n; STORE n is removed since it stores a variable's
+ *  value back in it (there is no DUP, so STORE n; LOAD n has to stay)<br>
+ *  UnusedLabel: a label no code branches to or calls is removed
+*/
+    public enum Rule {
+        PopZero, GotoNext, GotoChain, Unreachable, LoadStore, UnusedLabel
+    }
+
+    private EnumSet<Rule> rules;
+    private EnumMap<Rule,Integer> counts = new EnumMap<Rule,Integer>(Rule.class);
+    private int before, after, passes;
+
+/**
+ *  create an optimizer that applies every rule
+*/
+    public Peephole() {
+        this(EnumSet.allOf(Rule.class));
+    }
+
+/**
+ *  @param rules are the rules to apply
+*/
+    public Peephole(EnumSet<Rule> rules) {
+        this.rules = EnumSet.copyOf(rules);
+        for (Rule r : Rule.values()) {
+            counts.put(r, 0);
+        }
+    }
+
+/**
+ *  optimize the program in place
+ *  @return program
+*/
+    public Program execute(Program program) {
+        List<Code> codes = program.getCodes();
+        before = codes.size();
+        boolean changed = true;
+        for (passes = 0; changed; passes++) {
+            changed = false;
+            for (Rule r : rules) {
+                int n = apply(r, codes);
+                if (n > 0) {
+                    counts.put(r, counts.get(r) + n);
+                    changed = true;
+                }
+            }
+        }
+        after = codes.size();
+        return program;
+    }
+
+    private int apply(Rule r, List<Code> codes) {
+        switch (r) {
+            case PopZero: return popZero(codes);
+            case GotoNext: return gotoNext(codes);
+            case GotoChain: return gotoChain(codes);
+            case Unreachable: return unreachable(codes);
+            case LoadStore: return loadStore(codes);
+            case UnusedLabel: return unusedLabel(codes);
+        }
+        return 0;
+    }
+
+/**
+ *  @return the number of codes in the program before execute
+*/
+    public int getBefore() {
+        return before;
+    }
+
+    public int getAfter() {
+        return after;
+    }
+
+/**
+ *  @return the number of passes over the program, including the last
+ *  one that changed nothing
+*/
+    public int getPasses() {
+        return passes;
+    }
+
+/**
+ *  @return the number of times the rule removed or rewrote codes
+*/
+    public int getCount(Rule r) {
+        return counts.get(r);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("peephole: " + before + " -> " + after +
+                                            " codes in " + passes + " passes");
+        for (Rule r : rules) {
+            s.append(' ').append(r).append('=').append(counts.get(r));
+        }
+        return s.toString();
+    }
+
+    private static boolean is(Code c, Codes.ByteCodes bytecode) {
+        return c.getBytecode() == bytecode;
+    }
+
+/**
+ *  remove the codes at the marked positions; return how many there were
+*/
+    private static int removeMarked(List<Code> codes, boolean[] remove) {
+        int n = 0, kept = 0;
+        for (int i = 0; i < remove.length; i++) {
+            if (remove[i]) {
+                n++;
+            } else {
+                codes.set(kept++, codes.get(i));
+            }
+        }
+        codes.subList(kept, codes.size()).clear();
+        return n;
+    }
+
+    private static int popZero(List<Code> codes) {
+        boolean[] remove = new boolean[codes.size()];
+        for (int i = 0; i < codes.size(); i++) {
+            Code c = codes.get(i);
+            remove[i] = is(c, Codes.ByteCodes.POP) && ((NumOpcode)c).getNum() == 0;
+        }
+        return removeMarked(codes, remove);
+    }
+
+    private static int gotoNext(List<Code> codes) {
+        boolean[] remove = new boolean[codes.size()];
+        for (int i = 0; i < codes.size(); i++) {
+            if (!is(codes.get(i), Codes.ByteCodes.GOTO)) {
+                continue;
+            }
+            String target = ((LabelOpcode)codes.get(i)).label;
+            for (int j = i + 1; j < codes.size() && is(codes.get(j), Codes.ByteCodes.LABEL); j++) {
+                if (((LabelOpcode)codes.get(j)).label.equals(target)) {
+                    remove[i] = true;
+                    break;
+                }
+            }
+        }
+        return removeMarked(codes, remove);
+    }
+
+/**
+ *  @return for each label followed by GOTO M, M
+*/
+    private static HashMap<String,String> jumps(List<Code> codes) {
+        HashMap<String,String> jumps = new HashMap<String,String>();
+        for (int i = 0; i < codes.size(); i++) {
+            if (!is(codes.get(i), Codes.ByteCodes.LABEL)) {
+                continue;
+            }
+            int j = i + 1;
+            while (j < codes.size() && is(codes.get(j), Codes.ByteCodes.LABEL)) {
+                j++;
+            }
+            if (j < codes.size() && is(codes.get(j), Codes.ByteCodes.GOTO)) {
+                jumps.put(((LabelOpcode)codes.get(i)).label, ((LabelOpcode)codes.get(j)).label);
+            }
+        }
+        return jumps;
+    }
+
+/**
+ *  @return the label at the end of the chain of GOTOs starting at label;
+ *  label itself if the chain is a loop
+*/
+    private static String finalTarget(String label, HashMap<String,String> jumps) {
+        HashSet<String> seen = new HashSet<String>();
+        String target = label;
+        while (jumps.containsKey(target)) {
+            if (!seen.add(target)) {
+                return label;
+            }
+            target = jumps.get(target);
+        }
+        return target;
+    }
+
+    private static int gotoChain(List<Code> codes) {
+        HashMap<String,String> jumps = jumps(codes);
+        int n = 0;
+        for (Code c : codes) {
+            if (is(c, Codes.ByteCodes.GOTO) || is(c, Codes.ByteCodes.FALSEBRANCH)) {
+                LabelOpcode branch = (LabelOpcode)c;
+                String target = finalTarget(branch.label, jumps);
+                if (!target.equals(branch.label)) {
+                    branch.label = target;
+                    n++;
+                }
+            } else if (c instanceof SwitchOpcode) {
+                SwitchOpcode s = (SwitchOpcode)c;
+                for (int i = 0; i < s.labels.length; i++) {
+                    String target = finalTarget(s.labels[i], jumps);
+                    if (!target.equals(s.labels[i])) {
+                        s.labels[i] = target;
+                        n++;
+                    }
+                }
+                String target = finalTarget(s.defaultLabel, jumps);
+                if (!target.equals(s.defaultLabel)) {
+                    s.defaultLabel = target;
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static boolean endsFlow(Code c) {
+        switch (c.getBytecode()) {
+            case GOTO: case RETURN: case HALT: case TABLESWITCH: case LOOKUPSWITCH:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int unreachable(List<Code> codes) {
+        boolean[] remove = new boolean[codes.size()];
+        boolean reachable = true;
+        for (int i = 0; i < codes.size(); i++) {
+            Code c = codes.get(i);
+            if (is(c, Codes.ByteCodes.LABEL)) {
+                reachable = true;
+            } else if (!reachable) {
+                remove[i] = true;
+            } else if (endsFlow(c)) {
+                reachable = false;
+            }
+        }
+        return removeMarked(codes, remove);
+    }
+
+    private static int loadStore(List<Code> codes) {
+        boolean[] remove = new boolean[codes.size()];
+        for (int i = 0; i + 1 < codes.size(); i++) {
+            Code c = codes.get(i), next = codes.get(i + 1);
+            if (!remove[i] && is(c, Codes.ByteCodes.LOAD) && is(next, Codes.ByteCodes.STORE) &&
+                    ((VarOpcode)c).location == ((VarOpcode)next).location) {
+                remove[i] = remove[i + 1] = true;
+            }
+        }
+        return removeMarked(codes, remove) / 2;
+    }
+
+    private static int unusedLabel(List<Code> codes) {
+        HashSet<String> used = new HashSet<String>();
+        for (Code c : codes) {
+            switch (c.getBytecode()) {
+                case GOTO: case FALSEBRANCH: case CALL:
+                    used.add(((LabelOpcode)c).label);
+                    break;
+                case TABLESWITCH: case LOOKUPSWITCH:
+                    used.addAll(Arrays.asList(((SwitchOpcode)c).labels));
+                    used.add(((SwitchOpcode)c).defaultLabel);
+                    break;
+                default:
+                    break;
+            }
+        }
+        boolean[] remove = new boolean[codes.size()];
+        for (int i = 0; i < codes.size(); i++) {
+            Code c = codes.get(i);
+            remove[i] = is(c, Codes.ByteCodes.LABEL) && !used.contains(((LabelOpcode)c).label);
+        }
+        return removeMarked(codes, remove);
+    }
+}
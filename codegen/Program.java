@@ -17,6 +17,21 @@ public class Program {
         program.add(code);
     }
 
+/**
+ *  @return the bytecodes in program order; passes over the generated
+ *  program (e.g. Peephole) work on this list
+*/
+    List<Code> getCodes() {
+        return program;
+    }
+
+/**
+ *  @return the number of bytecodes in the program
+*/
+    public int size() {
+        return program.size();
+    }
+
 /**
  *  print all of the bytecodes that have been generated
  *  @param outFile a String indicating where to print the bytecodes
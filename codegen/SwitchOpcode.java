@@ -0,0 +1,62 @@
+package codegen;
+
+/**
+ *  SwitchOpcode class used for the switch dispatch bytecodes; both pop
+ *  the switch value and branch to the label chosen for it<br>
+ *  TABLESWITCH low high default label<sub>low</sub> ... label<sub>high</sub><br>
+ *  branches to the label of value - low if low &lt;= value &lt;= high,
+ *  else to default; values in the range without a case have the
+ *  default label<br>
+ *  LOOKUPSWITCH n default key<sub>1</sub> label<sub>1</sub> ... key<sub>n</sub> label<sub>n</sub><br>
+ *  the keys are in increasing order so the VM can binary search them;
+ *  branches to default if the value isn't a key
+*/
+public class SwitchOpcode extends Code {
+    int[] keys;             // TABLESWITCH: just low and high
+    String[] labels;
+    String defaultLabel;
+
+/**
+ *  @param low is the smallest value in the table
+ *  @param labels has the label for value low + i at i
+*/
+    public static SwitchOpcode table(int low, String[] labels, String defaultLabel) {
+        return new SwitchOpcode(Codes.ByteCodes.TABLESWITCH,
+                    new int[] {low, low + labels.length - 1}, labels, defaultLabel);
+    }
+
+/**
+ *  @param keys are the case values in increasing order
+ *  @param labels has the label for keys[i] at i
+*/
+    public static SwitchOpcode lookup(int[] keys, String[] labels, String defaultLabel) {
+        return new SwitchOpcode(Codes.ByteCodes.LOOKUPSWITCH, keys, labels, defaultLabel);
+    }
+
+    private SwitchOpcode(Codes.ByteCodes code, int[] keys, String[] labels, String defaultLabel) {
+        super(code);
+        this.keys = keys;
+        this.labels = labels;
+        this.defaultLabel = defaultLabel;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder(super.toString());
+        if (getBytecode() == Codes.ByteCodes.TABLESWITCH) {
+            s.append(' ').append(keys[0]).append(' ').append(keys[1]).append(' ').append(defaultLabel);
+            for (String label : labels) {
+                s.append(' ').append(label);
+            }
+        } else {
+            s.append(' ').append(keys.length).append(' ').append(defaultLabel);
+            for (int i = 0; i < keys.length; i++) {
+                s.append(' ').append(keys[i]).append(' ').append(labels[i]);
+            }
+        }
+        return s.toString();
+    }
+
+    public void print() {
+        System.out.println(toString());
+    }
+}
@@ -0,0 +1,237 @@
+package codegen;
+
+import java.util.*;
+
+/**
+ *  Verifier proves that a generated Program uses the runtime stack safely
+ *  and records how deep each function's frame gets, so an interpreter
+ *  can allocate each frame once and leave out its bounds checks<br>
+ *  The main program (from the first code) and each function (from the
+ *  label of a CALL) are checked separately by following their control
+ *  flow: GOTO, FALSEBRANCH and switches branch, RETURN and HALT end the
+ *  flow, and a CALL continues with the next code. A function's frame
+ *  starts with its args - the n of the ARGS n before each CALL of it.
+ *  The depth of the frame before each code that can be reached is
+ *  computed with Codes.frameChange, and the Verifier checks that<ul>
+ *  <li>every code has the values it pops, e.g. BOP has 2
+ *  <li>LOAD and STORE use a slot inside the frame
+ *  <li>the depth is the same on every path into a code, e.g. at a label
+ *  that is branched to and also reached from the code before it
+ *  <li>the flow doesn't run off the end of the program or into another
+ *  function</ul>
+ *  If the program is safe, each function's largest depth is put in the
+ *  program as MAXSTACK n: first in the program for the main program and
+ *  just after the function's label for a function. Run the Verifier
+ *  after any other pass over the Program (e.g. Peephole)
+*/
+public class Verifier {
+    public static final String MAIN = "<<main>>";
+
+    private LinkedHashMap<String,Integer> maxStacks = new LinkedHashMap<String,Integer>();
+    private boolean annotate = true;
+
+    private List<Code> codes;
+    private HashMap<String,Integer> labels;
+    private int[] depth;      // frame depth before each code; -1 if not reached yet
+    private String[] owner;   // the function each reached code belongs to
+
+/**
+ *  @param annotate is false to verify without adding MAXSTACK codes
+*/
+    public void setAnnotate(boolean annotate) {
+        this.annotate = annotate;
+    }
+
+/**
+ *  verify the program and add its MAXSTACK codes
+ *  @return program
+ *  @throws VerifierError for the first unsafe code found
+*/
+    public Program execute(Program program) throws VerifierError {
+        codes = program.getCodes();
+        for (Iterator<Code> it = codes.iterator(); it.hasNext(); ) {
+            if (it.next().getBytecode() == Codes.ByteCodes.MAXSTACK) {
+                it.remove();    // verified before; recompute
+            }
+        }
+        labels = new HashMap<String,Integer>();
+        for (int i = 0; i < codes.size(); i++) {
+            Code c = codes.get(i);
+            if (c.getBytecode() == Codes.ByteCodes.LABEL &&
+                    labels.put(((LabelOpcode)c).label, i) != null) {
+                throw new VerifierError(MAIN, i, "duplicate label " + ((LabelOpcode)c).label);
+            }
+        }
+        depth = new int[codes.size()];
+        Arrays.fill(depth, -1);
+        owner = new String[codes.size()];
+        maxStacks.clear();
+
+        LinkedHashMap<String,Integer> arity = functions();
+        maxStacks.put(MAIN, verify(MAIN, 0, 0));
+        for (Map.Entry<String,Integer> f : arity.entrySet()) {
+            maxStacks.put(f.getKey(), verify(f.getKey(), labels.get(f.getKey()), f.getValue()));
+        }
+        if (annotate) {
+            annotate();
+        }
+        codes = null;
+        return program;
+    }
+
+/**
+ *  @return the largest frame depth of each function verified, by label;
+ *  the main program's is under MAIN
+*/
+    public Map<String,Integer> getMaxStacks() {
+        return Collections.unmodifiableMap(maxStacks);
+    }
+
+    public int getMaxStack(String function) {
+        return maxStacks.get(function);
+    }
+
+/**
+ *  @return the number of args of each function that is called, by label
+*/
+    private LinkedHashMap<String,Integer> functions() throws VerifierError {
+        LinkedHashMap<String,Integer> arity = new LinkedHashMap<String,Integer>();
+        for (int i = 0; i < codes.size(); i++) {
+            if (codes.get(i).getBytecode() != Codes.ByteCodes.CALL) {
+                continue;
+            }
+            String name = ((LabelOpcode)codes.get(i)).label;
+            if (!labels.containsKey(name)) {
+                throw new VerifierError(MAIN, i, "call of undefined function " + name);
+            }
+            if (i == 0 || codes.get(i - 1).getBytecode() != Codes.ByteCodes.ARGS) {
+                throw new VerifierError(MAIN, i, "call of " + name + " without ARGS");
+            }
+            int n = ((NumOpcode)codes.get(i - 1)).getNum();
+            Integer known = arity.put(name, n);
+            if (known != null && known != n) {
+                throw new VerifierError(MAIN, i, name + " called with " + known + " and " + n + " args");
+            }
+        }
+        return arity;
+    }
+
+/**
+ *  follow the flow of a function from its entry
+ *  @param frame is the depth of the frame at the entry
+ *  @return the largest depth of the frame
+*/
+    private int verify(String function, int entry, int frame) throws VerifierError {
+        int max = frame;
+        ArrayDeque<Integer> work = new ArrayDeque<Integer>();
+        reach(function, entry, frame, entry, work);
+        while (!work.isEmpty()) {
+            int i = work.pop();
+            Code c = codes.get(i);
+            int d = depth[i];
+            int pops = pops(c);
+            if (d < pops) {
+                throw new VerifierError(function, i, c + " pops " + pops + " but the depth is " + d);
+            }
+            if (c.getBytecode() == Codes.ByteCodes.LOAD && !inFrame(((VarOpcode)c).location, d)) {
+                throw new VerifierError(function, i, c + " is outside the frame of depth " + d);
+            }
+            if (c.getBytecode() == Codes.ByteCodes.STORE && !inFrame(((VarOpcode)c).location, d - 1)) {
+                throw new VerifierError(function, i, c + " is outside the frame of depth " + (d - 1));
+            }
+            int change = Codes.frameChange.get(c.getBytecode());
+            int after = d + ((change == Codes.UnknownChange) ? -((NumOpcode)c).getNum() : change);
+            max = Math.max(max, after);
+            switch (c.getBytecode()) {
+                case HALT: case RETURN:
+                    break;
+                case GOTO:
+                    reach(function, target(function, i, ((LabelOpcode)c).label), after, i, work);
+                    break;
+                case FALSEBRANCH:
+                    reach(function, target(function, i, ((LabelOpcode)c).label), after, i, work);
+                    reach(function, i + 1, after, i, work);
+                    break;
+                case TABLESWITCH: case LOOKUPSWITCH:
+                    SwitchOpcode s = (SwitchOpcode)c;
+                    for (String label : s.labels) {
+                        reach(function, target(function, i, label), after, i, work);
+                    }
+                    reach(function, target(function, i, s.defaultLabel), after, i, work);
+                    break;
+                default:
+                    reach(function, i + 1, after, i, work);
+                    break;
+            }
+        }
+        return max;
+    }
+
+/**
+ *  record that code i is reached from code from with the frame at depth d
+*/
+    private void reach(String function, int i, int d, int from, ArrayDeque<Integer> work)
+            throws VerifierError {
+        if (i >= codes.size()) {
+            throw new VerifierError(function, from, "the flow runs off the end of the program");
+        }
+        if (depth[i] < 0) {
+            depth[i] = d;
+            owner[i] = function;
+            work.push(i);
+        } else if (!owner[i].equals(function)) {
+            throw new VerifierError(function, from, "the flow runs into " + owner[i]);
+        } else if (depth[i] != d) {
+            throw new VerifierError(function, i, "depth " + depth[i] + " and " + d +
+                                    " meet at " + codes.get(i));
+        }
+    }
+
+    private int target(String function, int from, String label) throws VerifierError {
+        Integer i = labels.get(label);
+        if (i == null) {
+            throw new VerifierError(function, from, "branch to undefined label " + label);
+        }
+        return i;
+    }
+
+    private static boolean inFrame(int slot, int depth) {
+        return slot >= 0 && slot < depth;
+    }
+
+/**
+ *  @return the number of values the code takes off the stack
+*/
+    private static int pops(Code c) {
+        switch (c.getBytecode()) {
+            case POP: case ARGS:
+                return ((NumOpcode)c).getNum();
+            case BOP:
+                return 2;
+            case FALSEBRANCH: case STORE: case RETURN: case WRITE:
+            case TABLESWITCH: case LOOKUPSWITCH:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    private void annotate() {
+        ArrayList<Code> annotated = new ArrayList<Code>(codes.size() + maxStacks.size());
+        HashMap<Integer,Integer> at = new HashMap<Integer,Integer>();   // code index -> max
+        for (Map.Entry<String,Integer> f : maxStacks.entrySet()) {
+            if (!f.getKey().equals(MAIN)) {
+                at.put(labels.get(f.getKey()), f.getValue());
+            }
+        }
+        annotated.add(new NumOpcode(Codes.ByteCodes.MAXSTACK, maxStacks.get(MAIN)));
+        for (int i = 0; i < codes.size(); i++) {
+            annotated.add(codes.get(i));
+            if (at.containsKey(i)) {
+                annotated.add(new NumOpcode(Codes.ByteCodes.MAXSTACK, at.get(i)));
+            }
+        }
+        codes.clear();
+        codes.addAll(annotated);
+    }
+}
@@ -0,0 +1,32 @@
+package codegen;
+
+/**
+ *  VerifierError is thrown by the Verifier for a program whose stack use
+ *  can't be proven safe
+*/
+public class VerifierError extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private String function;
+    private int position;
+
+/**
+ *  @param function is the label of the function the error is in, or
+ *  Verifier.MAIN
+ *  @param position is the index of the code the error was found at
+ *  @param message describes the error
+*/
+    public VerifierError(String function, int position, String message) {
+        super(message + " (code " + position + " in " + function + ")");
+        this.function = function;
+        this.position = position;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+}
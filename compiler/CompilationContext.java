@@ -0,0 +1,58 @@
+package compiler;
+
+import ast.NodeFactory;
+import constrain.Intrinsics;
+import lexer.SymbolTable;
+
+/**
+ *  A CompilationContext holds the state of one compilation that used to
+ *  be kept in static fields:<ol>
+ *  <li>the SymbolTable that interns the program's strings (and the
+ *  reserved words),
+ *  <li>the NodeFactory that creates and numbers the trees, and
+ *  <li>the Intrinsics - the trees for the built-in types and the
+ *  read/write functions - built by the Constrainer and used again by
+ *  the code generator</ol>
+ *  The context is passed to the Parser, which hands it on to the Lexer;
+ *  the Constrainer and Codegen take it from there, so compilations with
+ *  different contexts can run at the same time on different threads. A
+ *  single compilation is not thread safe, except where a phase says so
+ *  (e.g. the parallel Constrainer)
+*/
+public class CompilationContext {
+    private SymbolTable symbols = new SymbolTable();
+    private NodeFactory nodes;
+    private Intrinsics intrinsics;
+
+    public CompilationContext() {
+        this(new NodeFactory());
+    }
+
+/**
+ *  @param nodes creates the trees of this compilation, e.g. a NodeArena
+ *  owned by the worker thread running it
+*/
+    public CompilationContext(NodeFactory nodes) {
+        this.nodes = nodes;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public NodeFactory getNodes() {
+        return nodes;
+    }
+
+/**
+ *  @return the intrinsic trees, or null if the program has not been
+ *  constrained yet
+*/
+    public Intrinsics getIntrinsics() {
+        return intrinsics;
+    }
+
+    public void setIntrinsics(Intrinsics intrinsics) {
+        this.intrinsics = intrinsics;
+    }
+}
@@ -25,6 +25,7 @@ public class Compiler {
          */
 
     String sourceFile;
+    boolean writeStats = false;   // -stats: also write <source>.stats.json
 
     public Compiler(String sourceFile) {
         this.sourceFile = sourceFile;
@@ -36,10 +37,21 @@ public class Compiler {
             Parser parser = new Parser(sourceFile);
             AST ast = parser.execute();
 
+            // print the tree, compute the drawing offsets and, with -stats,
+            // gather the tree statistics in one walk
             PrintVisitor printVisitor = new PrintVisitor();
-            ast.accept(printVisitor);
-
-            OffsetVisitor ov = new OffsetVisitor(ast);
+            OffsetVisitor ov = new OffsetVisitor();
+            if (writeStats) {
+                TreeStats stats = new TreeStats();
+                new FusedTraversal(printVisitor, ov, stats).execute(ast);
+                try (Writer statsFile = new FileWriter(sourceFile + ".stats.json")) {
+                    stats.writeJson(statsFile);
+                } catch (IOException e) {
+                    System.out.println("Error in saving statistics: " + e.getMessage());
+                }
+            } else {
+                new FusedTraversal(printVisitor, ov).execute(ast);
+            }
             // System.out.println( ov );
 
             DrawOffsetVisitor dv = new DrawOffsetVisitor(ov);
@@ -73,10 +85,14 @@ public class Compiler {
     }
 
     public static void main(String args[]) {
-        if (args.length == 0) {
-            System.out.println("***Incorrect usage, try: java compiler.Compiler <file>");
+        boolean stats = args.length > 0 && args[0].equals("-stats");
+        int file = stats ? 1 : 0;
+        if (args.length <= file) {
+            System.out.println("***Incorrect usage, try: java compiler.Compiler [-stats] <file>");
             System.exit(1);
         }
-        (new Compiler(args[0])).compileProgram();
+        Compiler compiler = new Compiler(args[file]);
+        compiler.writeStats = stats;
+        compiler.compileProgram();
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package constrain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  CheckCache keeps the results of constraining each function body so a
+ *  later compilation of the same (edited) program only checks the bodies
+ *  that changed<br>
+ *  There is one entry per function, named by the function's name and
+ *  its position among the functions with that name. The entry is used
+ *  again only if its key is unchanged; the key combines<ul>
+ *  <li>the fingerprint of the FunctionDeclTree (its structure and
+ *  symbols, including the formals and return type) and
+ *  <li>the Types of the symbols declared outside the body that the
+ *  body's identifiers refer to</ul>
+ *  An entry records, for each tree of the body in preorder, what the tree
+ *  was decorated with, its Type and, for identifiers, its address, plus
+ *  the diagnostics found in the body; decorations that point outside the
+ *  body are recorded by how to find them again (e.g. look the identifier
+ *  up in the body's scope), so an entry can be replayed on the trees of
+ *  a new compilation<br>
+ *  The cache is thread safe; bodies may be checked and replayed in parallel
+*/
+public class CheckCache {
+    private ConcurrentHashMap<String,Entry> entries = new ConcurrentHashMap<String,Entry>();
+    private AtomicInteger hits = new AtomicInteger(), misses = new AtomicInteger();
+
+/**
+ *  The results of constraining one function body
+*/
+    static class Entry {
+        // decoration codes; values >= 0 are the preorder index of a tree in the body
+        static final int NONE = -1,        // no decoration
+                         OUTER = -2,       // the decl the tree's symbol has in the body's scope
+                         FUNCTION = -3,    // the function decl the body belongs to
+                         INTRINSIC = -10;  // INTRINSIC - k is intrinsic type decl k
+        static final long NO_ADDRESS = -1;
+
+        final String key;
+        final int[] decorations;
+        final Type[] types;
+        final long[] addresses;     // depth << 32 | slot of each IdTree, else NO_ADDRESS
+        final Constrainer.ConstrainerErrors[] errors;
+        final int[] errorTrees;     // preorder index of the tree of each error
+
+        Entry(String key, int[] decorations, Type[] types, long[] addresses,
+              Constrainer.ConstrainerErrors[] errors, int[] errorTrees) {
+            this.key = key;
+            this.decorations = decorations;
+            this.types = types;
+            this.addresses = addresses;
+            this.errors = errors;
+            this.errorTrees = errorTrees;
+        }
+    }
+
+/**
+ *  @param function names the function, e.g. "f#0"
+ *  @param key is the key of the function in the current compilation
+ *  @return the entry for the function if it has the same key, else null
+*/
+    Entry lookup(String function, String key) {
+        Entry e = entries.get(function);
+        if (e != null && e.key.equals(key)) {
+            hits.incrementAndGet();
+            return e;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void store(String function, Entry e) {
+        entries.put(function, e);
+    }
+
+/**
+ *  @return the number of bodies replayed from the cache
+*/
+    public int getHits() {
+        return hits.get();
+    }
+
+/**
+ *  @return the number of bodies that had to be checked
+*/
+    public int getMisses() {
+        return misses.get();
+    }
+
+/**
+ *  @return the number of functions with an entry
+*/
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
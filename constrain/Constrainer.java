@@ -1,10 +1,12 @@
 package constrain;
 
+import compiler.CompilationContext;
 import lexer.*;
 import parser.Parser;
 import visitor.*;
 import ast.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  *  Constrainer object will visit the AST, gather/check variable
@@ -12,22 +14,93 @@ import java.util.*;
  *  declarations; the decorations will be used by the code generator
  *  to provide access to the frame offset of the variable for generating
  *  load/store bytecodes; <br>
- *  Note that when constraining expression trees we return the type tree
- *  corresponding to the result type of the expression; e.g. 
- *  the result of constraining the tree for 1+2*3 will be the int type
- *  tree
+ *  Note that when constraining expression trees we return the Type
+ *  of the expression; e.g. the result of constraining the tree for 1+2*3
+ *  will be Type.INT. Types are interned, so they are compared with ==;
+ *  the type of each decl, expression and function is also kept in a
+ *  table indexed by node number (see getType)
 */
 public class Constrainer extends ASTVisitor {
 	public enum ConstrainerErrors {
 	    BadAssignmentType, CallingNonFunction, ActualFormalTypeMismatch, NumberActualsFormalsDiffer, TypeMismatchInExpr,
-	    BooleanExprExpected, BadConditional, ReturnNotInFunction, BadReturnExpr
+	    BooleanExprExpected, BadConditional, ReturnNotInFunction, BadReturnExpr,
+	    UndeclaredIdentifier, CaseLabelTypeMismatch, DuplicateCaseLabel, InvalidCaseLabel,
+	    UnsupportedSwitchType
 	}
 
     
 
     private AST t;           // the AST to constrain
-    private Table symtab = new Table();
+    private ScopedTable symtab = new DenseTable();
     private Parser parser;   // parser used with this constrainer
+    private CompilationContext context;
+
+/**
+ *  When recordScopes is set the symbol table is an EnvironmentTable and
+ *  the Environment in effect on entry to each block and function decl
+ *  is kept in scopes; see getScope and recheck
+*/
+    private boolean recordScopes = false;
+    private HashMap<AST,Environment> scopes = new HashMap<AST,Environment>();
+
+/**
+ *  When recordScopes is set, what was found while each function decl was
+ *  the innermost function being constrained, so recheck can drop what
+ *  the previous check of a function found before checking it again
+*/
+    private HashMap<AST,Findings> findings = new HashMap<AST,Findings>();
+
+    private static class Findings {
+        ArrayList<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+        XrefIndex.Builder links = new XrefIndex.Builder();
+        ArrayList<AST> nested = new ArrayList<AST>();   // function decls in the body
+    }
+
+/**
+ *  Every error found is added to diagnostics and checking goes on; the
+ *  tree in error gets the type errorTree, and checks whose operands
+ *  already have errorTree as their type report nothing more, so one
+ *  mistake yields one diagnostic
+*/
+    private ArrayList<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+
+/**
+ *  When parallel is set execute works in two phases:<ol><li>constrain the
+ *  program except for function bodies; each function's name, return
+ *  type and formals are entered as usual and the body is added to
+ *  deferred with a snapshot of the symbols in scope for it, <li>constrain
+ *  the deferred bodies on the pool, each with its own Constrainer whose
+ *  DenseTable is layered over the body's snapshot</ol>
+ *  The bodies only decorate their own trees and read the decorations
+ *  made in phase one, so they can be checked in any order
+*/
+    private boolean parallel = false;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private ArrayList<DeferredBody> deferred;
+
+/**
+ *  With a cache set, function bodies are deferred as in a parallel run
+ *  and each body whose key is unchanged since the cache entry was made
+ *  gets the cached results instead of being checked again; see CheckCache
+*/
+    private CheckCache cache;
+
+/**
+ *  links from each use of a name to its decl, recorded by link; each
+ *  worker has its own and they are merged when the bodies are done
+*/
+    private XrefIndex.Builder links = new XrefIndex.Builder();
+    private XrefIndex xref;
+
+    private static class DeferredBody {
+        AST function;
+        Environment scope;      // symbols in scope, including the formals
+
+        DeferredBody(AST function, Environment scope) {
+            this.function = function;
+            this.scope = scope;
+        }
+    }
     
 /**
  *  The following comment refers to the functions stack
@@ -43,23 +116,456 @@ public class Constrainer extends ASTVisitor {
     private Stack<AST> functions = new Stack<AST>();
 
 /**
- *  readTree, writeTree, intTree, boolTree,falseTree, trueTree
- *  are AST's that will be constructed (intrinsic trees) for
- *  every program. They are constructed in the same fashion as
- *  source program trees to ensure consisten processing of 
- *  functions, etc.
+ *  frameSize is the number of variables of the current frame (of the
+ *  function being constrained or of the main program) that are in
+ *  scope; the next decl gets slot frameSize and a variable's depth is
+ *  the size of the functions stack. Formals start a new frame and each
+ *  block gives back the slots of its decls, as the frame does at runtime
+*/
+    private int frameSize = 0;
+
+/**
+ *  readTree, writeTree, intTree, boolTree, errorTree, falseTree, trueTree
+ *  are the intrinsic trees of the compilation (see Intrinsics); they are
+ *  built when the program tree is constrained
+*/
+    private AST readTree, writeTree, intTree, boolTree, charTree, stringTree,
+               errorTree, falseTree, trueTree, readId, writeId;
+
+/**
+ *  types[n] is the Type of the tree with node number n: the type of the
+ *  variable for a DeclTree, the signature for a FunctionDeclTree and the
+ *  type of the value for an expression tree. Function signatures are
+ *  stored before any function body is checked; the workers that check
+ *  bodies in parallel share the array and each writes only the entries
+ *  for its own trees. The array is sized for every tree when the program
+ *  is constrained and grows (see setType) for trees made later, e.g. by
+ *  an edit before recheck; only the sequential paths grow it
 */
-    public static AST readTree, writeTree, intTree, boolTree,
-               falseTree, trueTree, readId, writeId;
+    private Type[] types = new Type[0];
                
     public Constrainer(AST t, Parser parser) {
         this.t = t;
         this.parser = parser;
+        this.context = parser.getContext();
+    }
+
+/**
+ *  a Constrainer for one function body deferred by the parent
+*/
+    private Constrainer(Constrainer parent, DeferredBody body) {
+        this.t = parent.t;
+        this.parser = parent.parser;
+        this.context = parent.context;
+        this.types = parent.types;
+        this.cache = parent.cache;
+        useIntrinsics(context.getIntrinsics());
+        this.recordScopes = parent.recordScopes;
+        symtab = recordScopes ? new EnvironmentTable(body.scope) : new DenseTable(body.scope);
+        functions.push(body.function);
+        if (recordScopes) {
+            findings.put(body.function, new Findings());
+        }
+        frameSize = body.function.getKid(3).kidCount();  // the formals
     }
     
-    public void execute() {
+/**
+ *  constrain the whole program
+ *  @return the errors found, in node number order; the program
+ *  may only be passed to the code generator if this list is empty
+*/
+    public List<Diagnostic> execute() {
+        if (parallel || cache != null) {
+            deferred = new ArrayList<DeferredBody>();
+            if (!recordScopes) {
+                symtab = new EnvironmentTable();  // to snapshot the scope of each body
+            }
+        }
         symtab.beginScope();
         t.accept(this);
+        if (deferred != null) {
+            checkDeferredBodies();
+            deferred = null;
+        }
+        xref = null;
+        sortDiagnostics();
+        return getDiagnostics();
+    }
+
+/**
+ *  by node number, so the order is the same however bodies were checked
+*/
+    private void sortDiagnostics() {
+        Collections.sort(diagnostics, new Comparator<Diagnostic>() {
+            public int compare(Diagnostic a, Diagnostic b) {
+                return Integer.compare(a.getNodeNum(), b.getNodeNum());
+            }
+        });
+    }
+
+/**
+ *  Check function bodies in parallel once their signatures are known;
+ *  must be called before execute
+ *  @param pool runs the body checks
+*/
+    public void setParallel(boolean parallel, ForkJoinPool pool) {
+        this.parallel = parallel;
+        this.pool = pool;
+    }
+
+    public void setParallel(boolean parallel) {
+        setParallel(parallel, ForkJoinPool.commonPool());
+    }
+
+/**
+ *  Use (and fill in) the cache of function body results; must be called
+ *  before execute. The cache is not used when scopes are recorded, since
+ *  it does not keep the scopes inside bodies
+*/
+    public void setCache(CheckCache cache) {
+        this.cache = cache;
+    }
+
+    private void checkDeferredBodies() {
+        ArrayList<Callable<Constrainer>> tasks = new ArrayList<Callable<Constrainer>>();
+        HashMap<String,Integer> sameName = new HashMap<String,Integer>();
+        for (final DeferredBody body : deferred) {
+            String fname = body.function.getKid(2).getSymbol().toString();
+            Integer n = sameName.get(fname);
+            sameName.put(fname, (n == null) ? 1 : n + 1);
+            final String cacheName = fname + "#" + ((n == null) ? 0 : n);
+            tasks.add(new Callable<Constrainer>() {
+                public Constrainer call() {
+                    Constrainer worker = new Constrainer(Constrainer.this, body);
+                    worker.checkBody(body, cacheName);
+                    return worker;
+                }
+            });
+        }
+        try {
+            List<Future<Constrainer>> done;
+            if (parallel) {
+                done = pool.invokeAll(tasks);
+            } else {
+                done = new ArrayList<Future<Constrainer>>();
+                for (Callable<Constrainer> task : tasks) {
+                    FutureTask<Constrainer> f = new FutureTask<Constrainer>(task);
+                    f.run();
+                    done.add(f);
+                }
+            }
+            for (Future<Constrainer> d : done) {
+                Constrainer worker = d.get();
+                diagnostics.addAll(worker.diagnostics);
+                scopes.putAll(worker.scopes);
+                mergeFindings(worker.findings);
+                links.addAll(worker.links);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("constrainer interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException)cause
+                                                      : new IllegalStateException(cause);
+        }
+    }
+
+/**
+ *  add what a worker found to findings; the worker's entry for its body
+ *  adds to the entry made here for the function's header
+*/
+    private void mergeFindings(HashMap<AST,Findings> found) {
+        for (Map.Entry<AST,Findings> e : found.entrySet()) {
+            Findings mine = findings.get(e.getKey());
+            if (mine == null) {
+                findings.put(e.getKey(), e.getValue());
+            } else {
+                mine.diagnostics.addAll(e.getValue().diagnostics);
+                mine.links.addAll(e.getValue().links);
+                mine.nested.addAll(e.getValue().nested);
+            }
+        }
+    }
+
+/**
+ *  check one deferred body, or replay its cached results if its key is
+ *  unchanged; this Constrainer is the worker made for the body
+*/
+    private void checkBody(DeferredBody body, String cacheName) {
+        AST bodyTree = body.function.getKid(4);
+        if (cache == null || recordScopes) {
+            bodyTree.accept(this);
+            return;
+        }
+        AST[] trees = preorder(bodyTree);
+        String key = cacheKey(body, trees);
+        CheckCache.Entry entry = cache.lookup(cacheName, key);
+        if (entry != null && entry.decorations.length == trees.length) {
+            replay(entry, body, trees);
+            return;
+        }
+        bodyTree.accept(this);
+        entry = makeEntry(key, body, trees);
+        if (entry != null) {
+            cache.store(cacheName, entry);
+        }
+    }
+
+    private static AST[] preorder(AST t) {
+        ArrayList<AST> trees = new ArrayList<AST>();
+        ArrayDeque<AST> stack = new ArrayDeque<AST>();
+        stack.push(t);
+        while (!stack.isEmpty()) {
+            AST next = stack.pop();
+            trees.add(next);
+            ArrayList<AST> kids = next.getKids();
+            for (int i = kids.size() - 1; i >= 0; i--) {
+                stack.push(kids.get(i));
+            }
+        }
+        return trees.toArray(new AST[trees.size()]);
+    }
+
+/**
+ *  the key of a body: the fingerprint of its function plus the name and
+ *  Type of each symbol used in the body that is bound in the body's scope
+ *  (a symbol declared in the body that hides one of these only adds to
+ *  the key, which is safe)
+*/
+    private String cacheKey(DeferredBody body, AST[] trees) {
+        TreeMap<String,Type> outer = new TreeMap<String,Type>();
+        for (AST tree : trees) {
+            if (tree.getKind() == NodeKind.Id) {
+                AST decl = (AST)body.scope.get(tree.getSymbol());
+                if (decl != null) {
+                    outer.put(tree.getSymbol().toString(), typeOfDecl(decl));
+                }
+            }
+        }
+        StringBuilder key = new StringBuilder(Long.toHexString(body.function.getFingerprint()));
+        for (Map.Entry<String,Type> e : outer.entrySet()) {
+            key.append(';').append(e.getKey()).append(':').append(e.getValue());
+        }
+        return key.toString();
+    }
+
+    private AST[] intrinsicTypes() {
+        return new AST[] { intTree, boolTree, charTree, stringTree, errorTree };
+    }
+
+/**
+ *  record the results of checking the body; null if a decoration or
+ *  diagnostic refers to a tree the entry cannot describe
+*/
+    private CheckCache.Entry makeEntry(String key, DeferredBody body, AST[] trees) {
+        IdentityHashMap<AST,Integer> index = new IdentityHashMap<AST,Integer>();
+        for (int i = 0; i < trees.length; i++) {
+            index.put(trees[i], i);
+        }
+        List<AST> intrinsic = Arrays.asList(intrinsicTypes());
+        int[] decorations = new int[trees.length];
+        Type[] treeTypes = new Type[trees.length];
+        long[] addresses = new long[trees.length];
+        for (int i = 0; i < trees.length; i++) {
+            AST d = decoration(trees[i]);
+            treeTypes[i] = getType(trees[i]);
+            addresses[i] = CheckCache.Entry.NO_ADDRESS;
+            if (trees[i].getKind() == NodeKind.Id && ((IdTree)trees[i]).getDepth() >= 0) {
+                IdTree var = (IdTree)trees[i];
+                addresses[i] = ((long)var.getDepth() << 32) | var.getFrameOffset();
+            }
+            if (d == null) {
+                decorations[i] = CheckCache.Entry.NONE;
+            } else if (index.containsKey(d)) {
+                decorations[i] = index.get(d);
+            } else if (d == body.function) {
+                decorations[i] = CheckCache.Entry.FUNCTION;
+            } else if (intrinsic.contains(d)) {
+                decorations[i] = CheckCache.Entry.INTRINSIC - intrinsic.indexOf(d);
+            } else if (trees[i].getKind() == NodeKind.Id && body.scope.get(trees[i].getSymbol()) == d) {
+                decorations[i] = CheckCache.Entry.OUTER;
+            } else {
+                return null;
+            }
+        }
+        ConstrainerErrors[] errors = new ConstrainerErrors[diagnostics.size()];
+        int[] errorTrees = new int[diagnostics.size()];
+        for (int i = 0; i < errors.length; i++) {
+            Integer at = index.get(diagnostics.get(i).getTree());
+            if (at == null) {
+                return null;
+            }
+            errors[i] = diagnostics.get(i).getError();
+            errorTrees[i] = at;
+        }
+        return new CheckCache.Entry(key, decorations, treeTypes, addresses, errors, errorTrees);
+    }
+
+/**
+ *  give the trees of the body the decorations, types, addresses and
+ *  diagnostics recorded in the cache entry
+*/
+    private void replay(CheckCache.Entry entry, DeferredBody body, AST[] trees) {
+        AST[] intrinsic = intrinsicTypes();
+        for (int i = 0; i < trees.length; i++) {
+            int d = entry.decorations[i];
+            AST decoration;
+            if (entry.addresses[i] != CheckCache.Entry.NO_ADDRESS) {
+                // link gives uses of variables outside the body their current address
+                ((IdTree)trees[i]).setAddress((int)(entry.addresses[i] >> 32), (int)entry.addresses[i]);
+            }
+            if (d >= 0) {
+                decoration = trees[d];
+                if (trees[i].getKind() == NodeKind.Id) {
+                    link(trees[i], decoration);
+                }
+            } else if (d == CheckCache.Entry.NONE) {
+                decoration = null;
+            } else if (d == CheckCache.Entry.FUNCTION) {
+                decoration = body.function;
+            } else if (d == CheckCache.Entry.OUTER) {
+                decoration = (AST)body.scope.get(trees[i].getSymbol());
+                if (decoration != errorTree) {
+                    link(trees[i], decoration);
+                }
+            } else {
+                decoration = intrinsic[CheckCache.Entry.INTRINSIC - d];
+            }
+            decorate(trees[i], decoration);
+            if (entry.types[i] != null) {
+                setType(trees[i], entry.types[i]);
+            }
+        }
+        // the dispatch of each switch is kept on the tree, not in the entry
+        for (AST tree : trees) {
+            if (tree.getKind() == NodeKind.Switch) {
+                analyzeSwitch((SwitchTree)tree, getType(tree.getKid(1)), false);
+            }
+        }
+        for (int i = 0; i < entry.errors.length; i++) {
+            constraintError(entry.errors[i], trees[entry.errorTrees[i]]);
+        }
+    }
+
+/**
+ *  @return the index from each decl to the node numbers of its uses,
+ *  for the trees constrained so far
+*/
+    public XrefIndex getXrefIndex() {
+        if (xref == null) {
+            xref = links.build();
+        }
+        return xref;
+    }
+
+/**
+ *  record that the IdTree use refers to decl and give the use the
+ *  address of a variable; every use found by the Constrainer (or
+ *  replayed from the cache) goes through here
+*/
+    private void link(AST use, AST decl) {
+        links.add(decl.getNodeNum(), use.getNodeNum());
+        if (recordScopes && !functions.empty()) {
+            findings.get(functions.peek()).links.add(decl.getNodeNum(), use.getNodeNum());
+        }
+        if (decl.getKind() == NodeKind.Decl) {
+            IdTree var = (IdTree)decl.getKid(2);
+            ((IdTree)use).setAddress(var.getDepth(), var.getFrameOffset());
+        }
+    }
+
+/**
+ *  @return the errors found so far
+*/
+    public List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+/**
+ *  Keep a snapshot of the symbols in scope at every block and function
+ *  decl; must be called before execute
+*/
+    public void setRecordScopes(boolean recordScopes) {
+        this.recordScopes = recordScopes;
+        symtab = recordScopes ? new EnvironmentTable() : new DenseTable();
+    }
+
+/**
+ *  @param t is a BlockTree or FunctionDeclTree
+ *  @return the symbols in scope on entry to t, or null if scopes were
+ *  not recorded for t
+*/
+    public Environment getScope(AST t) {
+        return scopes.get(t);
+    }
+
+/**
+ *  Constrain one function again (e.g. after its body was edited) in the
+ *  scope recorded for it by an earlier execute, without constraining
+ *  the rest of the program; the diagnostics and links the previous check
+ *  of the function (and the functions declared in it) found are dropped
+ *  first, so they are replaced rather than repeated
+ *  @param function is a FunctionDeclTree constrained by execute with
+ *  recordScopes set
+*/
+    public void recheck(AST function) {
+        Environment scope = getScope(function);
+        if (scope == null) {
+            throw new IllegalStateException("no scope recorded for node " + function.getNodeNum());
+        }
+        dropFindings(function);
+        int count = context.getNodes().getNodeCount();
+        if (count >= types.length) {
+            types = Arrays.copyOf(types, count + 1);   // room for trees made by the edit
+        }
+        ScopedTable saved = symtab;
+        symtab = new EnvironmentTable(scope);
+        // the function decls function is nested in, outermost first, so
+        // its variables get the same depth as in execute
+        functions.clear();
+        ArrayDeque<AST> enclosing = new ArrayDeque<AST>();
+        for (AST p = function.getParent(); p != null; p = p.getParent()) {
+            if (p.getKind() == NodeKind.FunctionDecl) {
+                enclosing.push(p);
+            }
+        }
+        functions.addAll(enclosing);
+        try {
+            function.accept(this);
+        } finally {
+            symtab = saved;
+            functions.clear();
+        }
+        xref = null;
+        sortDiagnostics();
+    }
+
+/**
+ *  remove what was found in function and the functions declared in it
+ *  from diagnostics and links
+*/
+    private void dropFindings(AST function) {
+        Set<Diagnostic> dropped = Collections.newSetFromMap(new IdentityHashMap<Diagnostic,Boolean>());
+        XrefIndex.Builder droppedLinks = new XrefIndex.Builder();
+        ArrayDeque<AST> work = new ArrayDeque<AST>();
+        work.push(function);
+        while (!work.isEmpty()) {
+            Findings f = findings.remove(work.pop());
+            if (f != null) {
+                dropped.addAll(f.diagnostics);
+                droppedLinks.addAll(f.links);
+                work.addAll(f.nested);
+            }
+        }
+        diagnostics.removeAll(dropped);
+        links.removeAll(droppedLinks);
+    }
+
+    private void recordScope(AST t) {
+        if (recordScopes) {
+            scopes.put(t, ((EnvironmentTable)symtab).snapshot());
+        }
     }
 
 /**
@@ -69,6 +575,23 @@ public class Constrainer extends ASTVisitor {
         return (AST)(symtab.get( ((IdTree)t).getSymbol()));
     }
 
+/**
+ *  t is an IdTree; retrieve the pointer to its declaration. If it has
+ *  none, report it and enter errorTree as its declaration in the current
+ *  scope so later uses in the scope are not reported again
+*/
+    private AST lookupDeclared(AST t) {
+        AST decl = lookup(t);
+        if (decl == null) {
+            constraintError(ConstrainerErrors.UndeclaredIdentifier, t);
+            enter(t, errorTree);
+            decl = errorTree;
+        } else if (decl != errorTree) {
+            link(t, decl);
+        }
+        return decl;
+    }
+
 /**
  *  Decorate the IdTree with the given decoration - its decl tree
 */
@@ -83,10 +606,74 @@ public class Constrainer extends ASTVisitor {
 /**
  *  get the type of the current type tree
  *  @param t is the type tree
- *  @return the intrinsic tree corresponding to the type of t
+ *  @return the Type named by t
+*/
+    private Type typeOf(AST t) {
+        switch (t.getKind()) {
+            case IntType:    return Type.INT;
+            case BoolType:   return Type.BOOLEAN;
+            case Char:       return Type.CHAR;
+            case StringType: return Type.STRING;
+            default:         return Type.ERROR;
+        }
+    }
+
+/**
+ *  @return the intrinsic decl tree used to decorate trees of the type
+*/
+    private AST typeTree(Type type) {
+        if (type == Type.INT) return intTree;
+        if (type == Type.BOOLEAN) return boolTree;
+        if (type == Type.CHAR) return charTree;
+        if (type == Type.STRING) return stringTree;
+        return errorTree;
+    }
+
+/**
+ *  @param t is a constrained tree
+ *  @return the Type recorded for t, or null if t has none (e.g. statements)
 */
-    private AST getType(AST t) {
-        return (t.getClass() == IntTypeTree.class)? intTree: boolTree;
+    public Type getType(AST t) {
+        int n = t.getNodeNum();
+        return (n < types.length) ? types[n] : null;
+    }
+
+    private Type setType(AST t, Type type) {
+        int n = t.getNodeNum();
+        if (n >= types.length) {
+            types = Arrays.copyOf(types, Math.max(n + 1, 2 * types.length));
+        }
+        types[n] = type;
+        return type;
+    }
+
+/**
+ *  @param decl is what an identifier is bound to: a DeclTree,
+ *  FunctionDeclTree or errorTree
+ *  @return the type of the identifier
+*/
+    private Type typeOfDecl(AST decl) {
+        if (decl == errorTree) {
+            return Type.ERROR;
+        }
+        Type type = getType(decl);
+        return (type == null) ? Type.ERROR : type;
+    }
+
+/**
+ *  @return the signature of the function; computed once per decl, when
+ *  its formals have been constrained
+*/
+    private Type.FunctionType signature(AST fct) {
+        Type type = getType(fct);
+        if (type == null) {
+            ArrayList<Type> params = new ArrayList<Type>();
+            for (AST formal : fct.getKid(3).getKids()) {
+                params.add(typeOfDecl(formal));
+            }
+            type = setType(fct, Type.function(typeOf(fct.getKid(1)), params));
+        }
+        return (Type.FunctionType)type;
     }
 
     public void decorate(AST t, AST decoration) {
@@ -101,39 +688,36 @@ public class Constrainer extends ASTVisitor {
     }
     
 /**
- *  build the intrinsic trees; constrain them in the same fashion
- *  as any other AST
+ *  build the intrinsic trees and record them in the compilation
+ *  context; constrain them in the same fashion as any other AST
 */
     private void buildIntrinsicTrees() {
-        Lexer lex = parser.getLex();
-        trueTree = new IdTree(lex.newIdToken("true",-1,-1));
-        falseTree = new IdTree(lex.newIdToken("false",-1,-1));
-        readId = new IdTree(lex.newIdToken("read",-1,-1));
-        writeId = new IdTree(lex.newIdToken("write",-1,-1));
-        boolTree = (new DeclTree()).addKid(new BoolTypeTree()).
-                 addKid(new IdTree(lex.newIdToken("<<bool>>",-1,-1)));
-        decorate(boolTree.getKid(2),boolTree);  
-        intTree = (new DeclTree()).addKid(new IntTypeTree()).
-                 addKid(new IdTree(lex.newIdToken("<<int>>",-1,-1)));
-        decorate(intTree.getKid(2),intTree);  
-        // to facilitate type checking; this ensures int decls and id decls
-        // have the same structure
-        
-        // read tree takes no parms and returns an int
-        readTree = (new FunctionDeclTree()).addKid(new IntTypeTree()).
-                       addKid(readId).addKid(new FormalsTree()).
-                       addKid(new BlockTree());
-        
-        // write tree takes one int parm and returns that value
-        writeTree = (new FunctionDeclTree()).addKid(new IntTypeTree()).
-                       addKid(writeId);
-        AST decl = (new DeclTree()).addKid(new IntTypeTree()).
-                       addKid(new IdTree(lex.newIdToken("dummyFormal",-1,-1)));
-        AST formals = (new FormalsTree()).addKid(decl);
-        writeTree.addKid(formals).addKid(new BlockTree());
+        Intrinsics intrinsics = new Intrinsics(context.getNodes(), context.getSymbols());
+        context.setIntrinsics(intrinsics);
+        useIntrinsics(intrinsics);
+        types = new Type[context.getNodes().getNodeCount() + 1];
+        setType(intTree, Type.INT);
+        setType(boolTree, Type.BOOLEAN);
+        setType(charTree, Type.CHAR);
+        setType(stringTree, Type.STRING);
+        setType(errorTree, Type.ERROR);
         writeTree.accept(this);
         readTree.accept(this);
     }
+
+    private void useIntrinsics(Intrinsics intrinsics) {
+        readTree = intrinsics.readTree;
+        writeTree = intrinsics.writeTree;
+        intTree = intrinsics.intTree;
+        boolTree = intrinsics.boolTree;
+        charTree = intrinsics.charTree;
+        stringTree = intrinsics.stringTree;
+        errorTree = intrinsics.errorTree;
+        falseTree = intrinsics.falseTree;
+        trueTree = intrinsics.trueTree;
+        readId = intrinsics.readId;
+        writeId = intrinsics.writeId;
+    }
     
 /**
  *  Constrain the program tree - visit its kid
@@ -151,9 +735,12 @@ public class Constrainer extends ASTVisitor {
  *  scope removing any local declarations from this scope</ol>
 */
     public Object visitBlockTree(AST t) {
+        int outerFrameSize = frameSize;
+        recordScope(t);
         symtab.beginScope();
         visitKids(t);
         symtab.endScope();
+        frameSize = outerFrameSize;
         return null; }
         
 /**
@@ -166,13 +753,31 @@ public class Constrainer extends ASTVisitor {
             returnType = t.getKid(1),
             formalsTree = t.getKid(3),
             bodyTree = t.getKid(4);
+        recordScope(t);
+        if (recordScopes) {
+            if (!functions.empty()) {
+                ArrayList<AST> nested = findings.get(functions.peek()).nested;
+                if (!nested.contains(t)) {   // already there when t is rechecked
+                    nested.add(t);
+                }
+            }
+            findings.put(t, new Findings());
+        }
         functions.push(t);
         enter(fname,t);  // enter function name in CURRENT scope
-        decorate(returnType,getType(returnType));
+        decorate(returnType,typeTree(typeOf(returnType)));
+        int outerFrameSize = frameSize;
+        frameSize = 0;        // the formals are at the bottom of a new frame
         symtab.beginScope();  // new scope for formals and body
         visitKids(formalsTree); // all formal names go in new scope
-        bodyTree.accept(this);
+        signature(t);
+        if (deferred != null) {
+            deferred.add(new DeferredBody(t, ((EnvironmentTable)symtab).snapshot()));
+        } else {
+            bodyTree.accept(this);
+        }
         symtab.endScope();
+        frameSize = outerFrameSize;
         functions.pop();
         return null;
     }
@@ -184,44 +789,41 @@ public class Constrainer extends ASTVisitor {
 */
     public Object visitCallTree(AST t) {
         AST fct,
-            fname = t.getKid(1),
-            fctType;
+            fname = t.getKid(1);
         visitKids(t);
-        fct = lookup(fname);
+        fct = lookupDeclared(fname);
+        if (fct == errorTree) {
+            decorate(t,errorTree);
+            return setType(t, Type.ERROR);   // already reported as undeclared
+        }
         if (fct.getClass() != FunctionDeclTree.class) {
-            constraintError(ConstrainerErrors.CallingNonFunction);
+            constraintError(ConstrainerErrors.CallingNonFunction, fname);
+            decorate(t,errorTree);
+            return setType(t, Type.ERROR);
         }
-        fctType = decoration(fct.getKid(1));
-        decorate(t,fctType);
+        Type.FunctionType fctType = signature(fct);
+        decorate(t,decoration(fct.getKid(1)));
         decorate(t.getKid(1),fct);
         // now check that the number/types of actuals match the
         // number/types of formals
-        checkArgDecls(t,fct);
-        return fctType;
+        checkArgDecls(t,fctType);
+        return setType(t, fctType.getResult());
     }
     
-    private void checkArgDecls(AST caller, AST fct) {
-        // check number and types of args/formals match
-        AST formals = fct.getKid(3);
-        Iterator<AST> actualKids = caller.getKids().iterator(),
-                    formalKids = formals.getKids().iterator();
-        actualKids.next();  // skip past fct name
-        for (; actualKids.hasNext();) {
-            try {
-                AST actualDecl = decoration(actualKids.next()),
-                    formalDecl = formalKids.next();
-                if (decoration(actualDecl.getKid(2)) != 
-                    decoration(formalDecl.getKid(2))) {
-                    constraintError(ConstrainerErrors.ActualFormalTypeMismatch);
-                }
-            } catch (Exception e) {
-                constraintError(ConstrainerErrors.NumberActualsFormalsDiffer);
-            }
+    private void checkArgDecls(AST caller, Type.FunctionType fctType) {
+        // check number and types of args/formals match; the types were
+        // recorded when the actuals were constrained
+        int actuals = caller.kidCount() - 1;  // kid 1 is the fct name
+        if (actuals != fctType.paramCount()) {
+            constraintError(ConstrainerErrors.NumberActualsFormalsDiffer, caller);
         }
-        if (formalKids.hasNext()) {
-            constraintError(ConstrainerErrors.NumberActualsFormalsDiffer);
+        for (int i = 0; i < Math.min(actuals, fctType.paramCount()); i++) {
+            AST actual = caller.getKid(i + 2);
+            Type actualType = getType(actual);
+            if (actualType != fctType.getParam(i) && actualType != Type.ERROR) {
+                constraintError(ConstrainerErrors.ActualFormalTypeMismatch, actual);
+            }
         }
-        return;
     }
                 
 /**
@@ -233,27 +835,27 @@ public class Constrainer extends ASTVisitor {
     public Object visitDeclTree(AST t) {
         AST idTree = t.getKid(2);
         enter(idTree,t);
-        AST typeTree = getType(t.getKid(1));
-        decorate(idTree,typeTree);
+        ((IdTree)idTree).setAddress(functions.size(), frameSize++);
+        Type type = setType(t, typeOf(t.getKid(1)));
+        decorate(idTree,typeTree(type));
         return null; }
         
 /**
  *  Constrain the <i>If</i> tree:<br>
- *  check that the first kid is an expression that is a boolean type
+ *  check that the first kid is an expression that is a boolean type;
+ *  the else part (3rd kid) is optional
 */
     public Object visitIfTree(AST t) {
-        if ( t.getKid(1).accept(this) != boolTree) {
-            constraintError(ConstrainerErrors.BadConditional);
-        }
+        checkCondition(t.getKid(1));
         t.getKid(2).accept(this);
-        t.getKid(3).accept(this);
+        if (t.kidCount() >= 3) {
+            t.getKid(3).accept(this);
+        }
         return null;
     }
         
     public Object visitWhileTree(AST t) {
-        if ( t.getKid(1).accept(this) != boolTree) {
-            constraintError(ConstrainerErrors.BadConditional);
-        }
+        checkCondition(t.getKid(1));
         t.getKid(2).accept(this);
         return null;
     }
@@ -265,74 +867,91 @@ public class Constrainer extends ASTVisitor {
 */
     public Object visitReturnTree(AST t) {
         if (functions.empty()) {
-            constraintError(ConstrainerErrors.ReturnNotInFunction);
+            constraintError(ConstrainerErrors.ReturnNotInFunction, t);
+            t.getKid(1).accept(this);
+            return null;
         }
         AST currentFunction = (functions.peek());
         decorate(t,currentFunction);
-        AST returnType = decoration(currentFunction.getKid(1));
-        if ( (t.getKid(1).accept(this)) != returnType) {
-            constraintError(ConstrainerErrors.BadReturnExpr);
+        Type returnType = signature(currentFunction).getResult();
+        Type exprType = (Type)(t.getKid(1).accept(this));
+        if (exprType != returnType && exprType != Type.ERROR) {
+            constraintError(ConstrainerErrors.BadReturnExpr, t);
         }
         return null;
     }
+
+/**
+ *  constrain the condition of an if, while or unless; it must be boolean
+*/
+    private void checkCondition(AST cond) {
+        Type condType = (Type)(cond.accept(this));
+        if (condType != Type.BOOLEAN && condType != Type.ERROR) {
+            constraintError(ConstrainerErrors.BadConditional, cond);
+        }
+    }
         
 /**
  *  Constrain the Assign tree:<br>
  *  be sure the types of the right-hand-side expression and variable
- *  match; when we constrain an expression we'll return a reference
- *  to the intrinsic type tree describing the type of the expression
+ *  match; when we constrain an expression we'll return the Type
+ *  of the expression
 */
     public Object visitAssignTree(AST t) {
         AST idTree = t.getKid(1),
-            idDecl = lookup(idTree),
-            typeTree;
+            idDecl = lookupDeclared(idTree);
         decorate(idTree,idDecl);
-        typeTree = decoration(idDecl.getKid(2));
+        Type varType = setType(idTree, typeOfDecl(idDecl));
         
         // now check that the types of the expr and id are the same
         // visit the expr tree and get back its type
-        if ( (t.getKid(2).accept(this)) != typeTree) {
-            constraintError(ConstrainerErrors.BadAssignmentType);
+        Type exprType = (Type)(t.getKid(2).accept(this));
+        if (exprType != varType && exprType != Type.ERROR && varType != Type.ERROR) {
+            constraintError(ConstrainerErrors.BadAssignmentType, t);
         }
         return null;
     }
         
     public Object visitIntTree(AST t) {
         decorate(t,intTree);
-        return intTree;
+        return setType(t, Type.INT);
     }
         
     public Object visitIdTree(AST t) {
-        AST decl = lookup(t);
+        AST decl = lookupDeclared(t);
         decorate(t,decl);
-        return decoration(decl.getKid(2));
+        return setType(t, typeOfDecl(decl));
     }
         
     public Object visitRelOpTree(AST t) {
         AST leftOp = t.getKid(1),
             rightOp = t.getKid(2);
-        if ( (AST)(leftOp.accept(this)) != (AST)(rightOp.accept(this)) ) {
-            constraintError(ConstrainerErrors.TypeMismatchInExpr);
+        Type leftOpType = (Type)(leftOp.accept(this)),
+             rightOpType = (Type)(rightOp.accept(this));
+        if (leftOpType != rightOpType && leftOpType != Type.ERROR && rightOpType != Type.ERROR) {
+            constraintError(ConstrainerErrors.TypeMismatchInExpr, t);
         }
         decorate(t,boolTree);
-        return boolTree;
+        return setType(t, Type.BOOLEAN);
     }
  
 /**
  *  Constrain the expression tree with an adding op at the root:<br>
  *  e.g. t1 + t2<br>
- *  check that the types of t1 and t2 match, if it's a plus tree
- *  then the types must be a reference to the intTree
+ *  check that the types of t1 and t2 match
  *  @return the type of the tree
 */
     public Object visitAddOpTree(AST t) {
-        AST leftOpType = (AST)(t.getKid(1).accept(this)),
-            rightOpType = (AST)(t.getKid(2).accept(this));
-        if (leftOpType != rightOpType) {
-            constraintError(ConstrainerErrors.TypeMismatchInExpr);
+        Type leftOpType = (Type)(t.getKid(1).accept(this)),
+             rightOpType = (Type)(t.getKid(2).accept(this));
+        if (leftOpType == Type.ERROR || rightOpType == Type.ERROR) {
+            leftOpType = Type.ERROR;
+        } else if (leftOpType != rightOpType) {
+            constraintError(ConstrainerErrors.TypeMismatchInExpr, t);
+            leftOpType = Type.ERROR;
         }
-        decorate(t,leftOpType);
-        return leftOpType;
+        decorate(t,typeTree(leftOpType));
+        return setType(t, leftOpType);
     }
         
     public Object visitMultOpTree(AST t) {
@@ -346,37 +965,231 @@ public class Constrainer extends ASTVisitor {
     public Object visitFormalsTree(AST t) {return null;}
     public Object visitActualArgsTree(AST t) {return null;}
     
-    void constraintError(ConstrainerErrors err) {
-        PrintVisitor v1 = new PrintVisitor();
-        v1.visitProgramTree(t);
-        System.out.println("****CONSTRAINER ERROR: " + err + "   ****");
-        System.exit(1);
-        return;
+/**
+ *  record an error and carry on constraining
+ *  @param err is the kind of error
+ *  @param t is the tree the error was found at
+*/
+    void constraintError(ConstrainerErrors err, AST t) {
+        int line = (parser == null) ? -1 : parser.getNodeIndex().getLine(t.getNodeNum());
+        Diagnostic d = new Diagnostic(err, t, line);
+        diagnostics.add(d);
+        if (recordScopes && !functions.empty()) {
+            findings.get(functions.peek()).diagnostics.add(d);
+        }
     }
 
 
-    //added
-    //TODO: Implement
+/**
+ *  The VM has no String values, so a switch on a String is an error
+ *  (UnsupportedSwitchType); its labels are still checked
+*/
     @Override
-    public Object visitSwitchTree(AST tree) {
+    public Object visitSwitchTree(AST t) {
+        Type subjectType = (Type)(t.getKid(1).accept(this));
+        if (subjectType == Type.STRING) {
+            constraintError(ConstrainerErrors.UnsupportedSwitchType, t.getKid(1));
+        }
+        for (AST c : t.getKid(2).getKids()) {
+            Type labelType = (Type)(c.accept(this));
+            if (labelType != null && labelType != subjectType &&
+                    labelType != Type.ERROR && subjectType != Type.ERROR) {
+                constraintError(ConstrainerErrors.CaseLabelTypeMismatch, c.getKid(1));
+            }
+        }
+        analyzeSwitch((SwitchTree)t, subjectType, true);
         return null;
     }
 
+/**
+ *  @return the Type of the case label
+*/
     @Override
-    public Object visitCaseTree(AST tree) {
-        return null;
+    public Object visitCaseTree(AST t) {
+        Type labelType = (Type)(t.getKid(1).accept(this));
+        t.getKid(2).accept(this);
+        return labelType;
     }
 
     @Override
-    public Object visitSwitchBlockTree(AST tree) {
+    public Object visitSwitchBlockTree(AST t) {
+        visitKids(t);
         return null;
     }
 
     @Override
-    public Object visitDefaultTree(AST tree) {
+    public Object visitDefaultTree(AST t) {
+        t.getKid(1).accept(this);
         return null;
     }
 
+/**
+ *  Check the case labels of a switch whose labels have been constrained
+ *  and record its dispatch on the SwitchTree:<br>
+ *  a label value may appear once and there may be one default; the later
+ *  duplicate is the one reported. If every label has the type of the
+ *  subject the labels are sorted and the switch is classified (see
+ *  SwitchTree.Dispatch); int and char switches are DenseRange when a
+ *  jump table over getLow() .. getHigh() is no more costly than a search
+ *  through the labels, using the weights javac uses: a table takes
+ *  4 + range words and 3 steps, a search 3 + 2n words and n steps, and
+ *  a step counts 3 times as much as a word
+ *  @param report is false when the labels' errors were already reported,
+ *  e.g. when the body is replayed from the cache
+*/
+    private void analyzeSwitch(SwitchTree t, Type subjectType, boolean report) {
+        ArrayList<AST> cases = new ArrayList<AST>();   // the cases with labels of the right type
+        AST defaultCase = null;
+        boolean labelsOk = true;
+        for (AST c : t.getKid(2).getKids()) {
+            if (c.getKind() == NodeKind.Default) {
+                if (defaultCase == null) {
+                    defaultCase = c;
+                } else if (report) {
+                    constraintError(ConstrainerErrors.DuplicateCaseLabel, c);
+                }
+            } else if (getType(c.getKid(1)) == subjectType) {
+                cases.add(c);
+            } else {
+                labelsOk = false;
+            }
+        }
+        if (subjectType != Type.INT && subjectType != Type.CHAR && subjectType != Type.STRING) {
+            if (labelsOk && cases.isEmpty() && subjectType != Type.ERROR) {
+                // nothing to dispatch on; every value goes to the default
+                t.setDispatch(SwitchTree.Dispatch.Sparse, new int[0], new AST[0], defaultCase);
+            }
+            return;
+        }
+        int n = cases.size();
+        if (subjectType == Type.STRING) {
+            String[] values = new String[n];
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = stringValue(cases.get(i).getKid(1).getSymbol().toString());
+                order[i] = i;
+            }
+            final String[] v = values;
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    int c = v[a].compareTo(v[b]);
+                    return (c != 0) ? c : a - b;
+                }
+            });
+            ArrayList<String> keys = new ArrayList<String>();
+            ArrayList<AST> targets = new ArrayList<AST>();
+            for (int i = 0; i < n; i++) {
+                AST c = cases.get(order[i]);
+                if (i > 0 && values[order[i]].equals(values[order[i - 1]])) {
+                    if (report) {
+                        constraintError(ConstrainerErrors.DuplicateCaseLabel, c.getKid(1));
+                    }
+                    continue;
+                }
+                keys.add(values[order[i]]);
+                targets.add(c);
+            }
+            if (labelsOk) {
+                t.setDispatch(keys.toArray(new String[keys.size()]),
+                              targets.toArray(new AST[targets.size()]), defaultCase);
+            }
+            return;
+        }
+        // sort (value, position) pairs packed into longs
+        long[] order = new long[n];
+        int valid = 0;
+        for (int i = 0; i < n; i++) {
+            AST label = cases.get(i).getKid(1);
+            String text = label.getSymbol().toString();
+            long value = (subjectType == Type.CHAR) ? charValue(text) : intValue(text);
+            if (value == NO_VALUE) {
+                if (report) {
+                    constraintError(ConstrainerErrors.InvalidCaseLabel, label);
+                }
+                labelsOk = false;
+                continue;
+            }
+            order[valid++] = (value << 32) | i;
+        }
+        order = Arrays.copyOf(order, valid);
+        n = valid;
+        Arrays.sort(order);
+        int[] keys = new int[n];
+        AST[] targets = new AST[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int value = (int)(order[i] >> 32);
+            AST c = cases.get((int)order[i]);
+            if (count > 0 && keys[count - 1] == value) {
+                if (report) {
+                    constraintError(ConstrainerErrors.DuplicateCaseLabel, c.getKid(1));
+                }
+                continue;
+            }
+            keys[count] = value;
+            targets[count++] = c;
+        }
+        if (!labelsOk) {
+            return;
+        }
+        keys = Arrays.copyOf(keys, count);
+        targets = Arrays.copyOf(targets, count);
+        SwitchTree.Dispatch dispatch = SwitchTree.Dispatch.Sparse;
+        if (count > 0) {
+            long tableCost = 4 + ((long)keys[count - 1] - keys[0] + 1) + 3 * 3,
+                 searchCost = 3 + 2L * count + 3L * count;
+            if (tableCost <= searchCost) {
+                dispatch = SwitchTree.Dispatch.DenseRange;
+            }
+        }
+        t.setDispatch(dispatch, keys, targets, defaultCase);
+    }
+
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+/**
+ *  @param text is an int literal
+ *  @return its value or NO_VALUE if it doesn't fit in an int
+*/
+    private static long intValue(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return NO_VALUE;
+        }
+    }
+
+/**
+ *  @param text is a char literal with its quotes, e.g. 'a' or '\n'
+ *  @return the value of the char or NO_VALUE if it isn't one char
+*/
+    private static long charValue(String text) {
+        if (text.length() == 3 && text.charAt(1) != '\\') {
+            return text.charAt(1);
+        }
+        if (text.length() == 4 && text.charAt(1) == '\\') {
+            switch (text.charAt(2)) {
+                case 'n': return '\n';
+                case 't': return '\t';
+                case 'r': return '\r';
+                case '0': return 0;
+                case '\\': case '\'': case '"': return text.charAt(2);
+            }
+        }
+        return NO_VALUE;
+    }
+
+/**
+ *  @param text is a String literal with its quotes
+ *  @return the text between the quotes
+*/
+    private static String stringValue(String text) {
+        if (text.length() >= 2 && text.charAt(0) == '"' && text.charAt(text.length() - 1) == '"') {
+            return text.substring(1, text.length() - 1);
+        }
+        return text;
+    }
+
     @Override
     public Object visitUnlessTree(AST tree) {
         return null;
@@ -394,12 +1207,14 @@ public class Constrainer extends ASTVisitor {
 
     @Override
     public Object visitStringLitTree(AST tree) {
-        return null;
+        decorate(tree,stringTree);
+        return setType(tree, Type.STRING);
     }
 
     @Override
     public Object visitCharLitTree(AST tree) {
-        return null;
+        decorate(tree,charTree);
+        return setType(tree, Type.CHAR);
     }
 
 }
\ No newline at end of file
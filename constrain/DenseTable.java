@@ -0,0 +1,130 @@
+package constrain;
+
+import java.util.Arrays;
+import lexer.Symbol;
+
+/** <pre>
+ * DenseTable is a ScopedTable keyed by the dense id of each Symbol instead
+ * of by hashing the Symbol as Table does:
+ *
+ * bindings[id] is the Binding chain for the symbol with that id; the head
+ * is the binding in the innermost scope and each tail is the binding it
+ * hides in an enclosing scope
+ *
+ * log holds the ids of the symbols put in each open scope, in order, and
+ * marks holds the size of log when each scope was opened
+ *
+ * get is an array index, and endScope pops the ids put since the last mark
+ * and drops the head of each of their chains - no hashing or allocation
+ *
+ * A DenseTable can be layered over a parent Environment (e.g. a snapshot
+ * of the scope a function body is checked in): get falls back to the
+ * parent for symbols with no binding in the table, and the parent is
+ * never changed, so tables on different threads can share it
+ * </pre>
+*/
+public class DenseTable implements ScopedTable {
+
+ /**
+  * a binding of a symbol; tail is the binding it hides
+  */
+  private static final class Binding {
+    final Object value;
+    final Binding tail;
+
+    Binding(Object value, Binding tail) {
+      this.value = value;
+      this.tail = tail;
+    }
+  }
+
+  private Binding[] bindings;
+  private Symbol[] keys;        // symbol for each id seen, for keys()
+  private int[] log = new int[64];
+  private int logSize = 0;
+  private int[] marks = new int[16];
+  private int markCount = 0;
+  private Environment parent;
+
+  public DenseTable() {
+    this(Environment.EMPTY);
+  }
+
+ /**
+  * @param parent holds the bindings of the enclosing scopes
+  */
+  public DenseTable(Environment parent) {
+    this.parent = parent;
+    bindings = new Binding[64];
+    keys = new Symbol[64];
+  }
+
+ /**
+  * Gets the object associated with the specified symbol in the table,
+  * or null if the symbol is not bound in any open scope or the parent
+  */
+  @Override
+  public Object get(Symbol key) {
+    int id = key.getId();
+    Binding b = (id < bindings.length) ? bindings[id] : null;
+    return (b != null) ? b.value : parent.get(key);
+  }
+
+ /**
+  * Puts the specified value into the table, bound to the specified Symbol
+  * in the current scope
+  */
+  @Override
+  public void put(Symbol key, Object value) {
+    int id = key.getId();
+    if (id >= bindings.length) {
+      int n = Math.max(id + 1, 2 * bindings.length);
+      bindings = Arrays.copyOf(bindings, n);
+      keys = Arrays.copyOf(keys, n);
+    }
+    bindings[id] = new Binding(value, bindings[id]);
+    keys[id] = key;
+    if (logSize == log.length) {
+      log = Arrays.copyOf(log, 2 * logSize);
+    }
+    log[logSize++] = id;
+  }
+
+ /**
+  * Remembers the current state of the table; push new mark on mark stack
+  */
+  @Override
+  public void beginScope() {
+    if (markCount == marks.length) {
+      marks = Arrays.copyOf(marks, 2 * markCount);
+    }
+    marks[markCount++] = logSize;
+  }
+
+ /**
+  * Restores the table to what it was at the most recent beginScope
+  * that has not already been ended.
+  */
+  @Override
+  public void endScope() {
+    int mark = marks[--markCount];
+    while (logSize > mark) {
+      int id = log[--logSize];
+      bindings[id] = bindings[id].tail;
+    }
+  }
+
+  /**
+   * @return a set of the table's symbols.
+   */
+  @Override
+  public java.util.Set<Symbol> keys() {
+    java.util.HashSet<Symbol> result = new java.util.HashSet<Symbol>(parent.keys());
+    for (int id = 0; id < bindings.length; id++) {
+      if (bindings[id] != null) {
+        result.add(keys[id]);
+      }
+    }
+    return result;
+  }
+}
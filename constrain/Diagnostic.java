@@ -0,0 +1,48 @@
+package constrain;
+
+import ast.*;
+
+/**
+ *  A Diagnostic records one error found by the Constrainer: the kind of
+ *  error, the tree it was found at and the source line of that tree
+*/
+public class Diagnostic {
+    private Constrainer.ConstrainerErrors error;
+    private AST tree;
+    private int line;
+
+/**
+ *  @param error is the kind of error
+ *  @param tree is the tree the error was found at
+ *  @param line is the source line of tree, or -1 if not known
+*/
+    public Diagnostic(Constrainer.ConstrainerErrors error, AST tree, int line) {
+        this.error = error;
+        this.tree = tree;
+        this.line = line;
+    }
+
+    public Constrainer.ConstrainerErrors getError() {
+        return error;
+    }
+
+    public AST getTree() {
+        return tree;
+    }
+
+    public int getNodeNum() {
+        return tree.getNodeNum();
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        String where = (line >= 0) ? "line " + line + ", node " + getNodeNum()
+                                   : "node " + getNodeNum();
+        String name = (tree.getSymbol() != null) ? " " + tree.getSymbol() : "";
+        return "****CONSTRAINER ERROR: " + error + name + " (" + where + ")   ****";
+    }
+}
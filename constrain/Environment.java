@@ -0,0 +1,149 @@
+package constrain;
+
+import java.util.*;
+import lexer.Symbol;
+
+/** <pre>
+ * An Environment is an immutable map from Symbols to their bindings (the
+ * decl trees the Constrainer enters); put returns a new Environment and
+ * leaves the old one unchanged, so an Environment can be kept as a
+ * snapshot of the symbols in scope at some point in the program
+ *
+ * The map is a hash array mapped trie keyed by the dense Symbol id:
+ * each node covers 5 bits of the id and holds a 32 bit bitmap of the
+ * slots in use plus a packed array with one entry per set bit - either
+ * a leaf (id, symbol, value) or a node for the next 5 bits
+ *
+ * put copies only the nodes on the path to the changed leaf (at most 7);
+ * every other node is shared with the Environment it was made from
+ * </pre>
+*/
+public final class Environment {
+
+  public static final Environment EMPTY = new Environment(new Node(0, new Object[0]), 0);
+
+  private static final int BITS = 5, MASK = (1 << BITS) - 1;
+
+  private final Node root;
+  private final int size;
+
+  private Environment(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  // a binding; ids are unique, so one leaf per symbol
+  private static final class Leaf {
+    final int id;
+    final Symbol key;
+    final Object value;
+
+    Leaf(Symbol key, Object value) {
+      this.id = key.getId();
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private static final class Node {
+    final int bitmap;
+    final Object[] slots;    // Leaf or Node for each set bit, in bit order
+
+    Node(int bitmap, Object[] slots) {
+      this.bitmap = bitmap;
+      this.slots = slots;
+    }
+
+    int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+  }
+
+ /**
+  * @return the value bound to the symbol, or null if it is not bound
+  */
+  public Object get(Symbol key) {
+    int id = key.getId();
+    Node n = root;
+    for (int shift = 0; ; shift += BITS) {
+      int bit = 1 << ((id >>> shift) & MASK);
+      if ((n.bitmap & bit) == 0) {
+        return null;
+      }
+      Object slot = n.slots[n.index(bit)];
+      if (slot instanceof Leaf) {
+        Leaf leaf = (Leaf)slot;
+        return (leaf.id == id) ? leaf.value : null;
+      }
+      n = (Node)slot;
+    }
+  }
+
+ /**
+  * @return an Environment with the symbol bound to value, replacing any
+  * binding it has here; this Environment is not changed
+  */
+  public Environment put(Symbol key, Object value) {
+    boolean[] added = new boolean[1];
+    Node newRoot = put(root, new Leaf(key, value), 0, added);
+    return new Environment(newRoot, added[0] ? size + 1 : size);
+  }
+
+  private static Node put(Node n, Leaf leaf, int shift, boolean[] added) {
+    int bit = 1 << ((leaf.id >>> shift) & MASK);
+    int i = n.index(bit);
+    if ((n.bitmap & bit) == 0) {
+      Object[] slots = new Object[n.slots.length + 1];
+      System.arraycopy(n.slots, 0, slots, 0, i);
+      slots[i] = leaf;
+      System.arraycopy(n.slots, i, slots, i + 1, n.slots.length - i);
+      added[0] = true;
+      return new Node(n.bitmap | bit, slots);
+    }
+    Object slot = n.slots[i];
+    Object replacement;
+    if (slot instanceof Node) {
+      replacement = put((Node)slot, leaf, shift + BITS, added);
+    } else if (((Leaf)slot).id == leaf.id) {
+      replacement = leaf;
+    } else {
+      // two ids share these bits; push the old leaf down a level
+      Node split = put(new Node(0, new Object[0]), (Leaf)slot, shift + BITS, added);
+      replacement = put(split, leaf, shift + BITS, added);
+    }
+    Object[] slots = n.slots.clone();
+    slots[i] = replacement;
+    return new Node(n.bitmap, slots);
+  }
+
+ /**
+  * @return the number of symbols bound
+  */
+  public int size() {
+    return size;
+  }
+
+ /**
+  * @return the bound symbols, in id order
+  */
+  public List<Symbol> keys() {
+    ArrayList<Symbol> result = new ArrayList<Symbol>(size);
+    collect(root, result);
+    Collections.sort(result, new Comparator<Symbol>() {
+      public int compare(Symbol a, Symbol b) {
+        return Integer.compare(a.getId(), b.getId());
+      }
+    });
+    return result;
+  }
+
+  private static void collect(Node n, List<Symbol> result) {
+    for (Object slot : n.slots) {
+      if (slot instanceof Leaf) {
+        result.add(((Leaf)slot).key);
+      } else {
+        collect((Node)slot, result);
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package constrain;
+
+import java.util.*;
+import lexer.Symbol;
+
+/** <pre>
+ * EnvironmentTable is a ScopedTable whose contents are a persistent Environment:
+ * put replaces the current Environment with an extended one, beginScope
+ * pushes the current Environment and endScope pops back to it
+ *
+ * snapshot() returns the current Environment in O(1); it stays valid (and
+ * unchanged) however the table is used afterwards
+ * </pre>
+*/
+public class EnvironmentTable implements ScopedTable {
+
+  private Environment env;
+  private ArrayDeque<Environment> marks = new ArrayDeque<Environment>();
+
+  public EnvironmentTable() {
+    this(Environment.EMPTY);
+  }
+
+ /**
+  * @param env is the initial contents of the table, e.g. a snapshot
+  * taken earlier by another EnvironmentTable
+  */
+  public EnvironmentTable(Environment env) {
+    this.env = env;
+  }
+
+  @Override
+  public Object get(Symbol key) {
+    return env.get(key);
+  }
+
+  @Override
+  public void put(Symbol key, Object value) {
+    env = env.put(key, value);
+  }
+
+  @Override
+  public void beginScope() {
+    marks.push(env);
+  }
+
+  @Override
+  public void endScope() {
+    env = marks.pop();
+  }
+
+  @Override
+  public java.util.Set<Symbol> keys() {
+    return new LinkedHashSet<Symbol>(env.keys());
+  }
+
+ /**
+  * @return the symbols in scope now
+  */
+  public Environment snapshot() {
+    return env;
+  }
+}
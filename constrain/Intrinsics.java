@@ -0,0 +1,71 @@
+package constrain;
+
+import ast.*;
+import lexer.*;
+
+/**
+ *  Intrinsics holds the trees that are built for every program rather
+ *  than parsed: the decls for the int, boolean, char, String and error
+ *  types, the ids
+ *  true and false, and the decls of the read and write functions. They
+ *  are built in the same fashion as source program trees (with the
+ *  compilation's NodeFactory and SymbolTable) to ensure consistent
+ *  processing of functions, etc.<br>
+ *  The type decls are decorated here; the Constrainer constrains the
+ *  read and write functions and Codegen generates their code
+*/
+public class Intrinsics {
+    public final AST readTree, writeTree, intTree, boolTree, charTree, stringTree,
+               errorTree, falseTree, trueTree, readId, writeId;
+
+/**
+ *  build the intrinsic trees
+ *  @param nodes creates the trees
+ *  @param symbols interns the names of the trees
+*/
+    public Intrinsics(NodeFactory nodes, SymbolTable symbols) {
+        trueTree = nodes.idTree(idToken(symbols, "true"));
+        falseTree = nodes.idTree(idToken(symbols, "false"));
+        readId = nodes.idTree(idToken(symbols, "read"));
+        writeId = nodes.idTree(idToken(symbols, "write"));
+        boolTree = nodes.declTree().addKid(nodes.boolTypeTree()).
+                 addKid(nodes.idTree(idToken(symbols, "<<bool>>")));
+        boolTree.getKid(2).setDecoration(boolTree);
+        intTree = nodes.declTree().addKid(nodes.intTypeTree()).
+                 addKid(nodes.idTree(idToken(symbols, "<<int>>")));
+        intTree.getKid(2).setDecoration(intTree);
+        // to facilitate type checking; this ensures int decls and id decls
+        // have the same structure
+
+        // errorTree is the type of any tree that failed to constrain; it
+        // has the shape of intTree and boolTree (and is its own type) so it
+        // can also stand in for the decl of an undeclared identifier
+        errorTree = nodes.declTree().addKid(nodes.intTypeTree()).
+                 addKid(nodes.idTree(idToken(symbols, "<<error>>")));
+        errorTree.getKid(2).setDecoration(errorTree);
+
+        // read tree takes no parms and returns an int
+        readTree = nodes.functionDeclTree().addKid(nodes.intTypeTree()).
+                       addKid(readId).addKid(nodes.formalsTree()).
+                       addKid(nodes.blockTree());
+
+        // write tree takes one int parm and returns that value
+        writeTree = nodes.functionDeclTree().addKid(nodes.intTypeTree()).
+                       addKid(writeId);
+        AST decl = nodes.declTree().addKid(nodes.intTypeTree()).
+                       addKid(nodes.idTree(idToken(symbols, "dummyFormal")));
+        AST formals = nodes.formalsTree().addKid(decl);
+        writeTree.addKid(formals).addKid(nodes.blockTree());
+
+        charTree = nodes.declTree().addKid(nodes.charTree()).
+                 addKid(nodes.idTree(idToken(symbols, "<<char>>")));
+        charTree.getKid(2).setDecoration(charTree);
+        stringTree = nodes.declTree().addKid(nodes.stringTypeTree()).
+                 addKid(nodes.idTree(idToken(symbols, "<<String>>")));
+        stringTree.getKid(2).setDecoration(stringTree);
+    }
+
+    private static Token idToken(SymbolTable symbols, String name) {
+        return new Token(-1, -1, -1, symbols.symbol(name, Tokens.Identifier));
+    }
+}
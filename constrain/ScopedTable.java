@@ -0,0 +1,43 @@
+package constrain;
+
+import lexer.Symbol;
+
+/** <pre>
+ * A ScopedTable binds Symbols to values in nested scopes: put binds a
+ * symbol in the innermost open scope, hiding any binding of it in the
+ * enclosing scopes, and endScope drops the bindings made since the
+ * matching beginScope
+ *
+ * Table hashes the Symbols; DenseTable indexes by their dense ids and
+ * EnvironmentTable keeps a persistent Environment it can snapshot
+ * </pre>
+*/
+public interface ScopedTable {
+
+ /**
+  * @return the value bound to key in the innermost scope that binds it,
+  * or null if key is not bound
+  */
+  Object get(Symbol key);
+
+ /**
+  * Binds key to value in the current scope
+  */
+  void put(Symbol key, Object value);
+
+ /**
+  * Opens a new scope
+  */
+  void beginScope();
+
+ /**
+  * Closes the most recent scope that has not already been closed,
+  * dropping the bindings made in it
+  */
+  void endScope();
+
+ /**
+  * @return the symbols bound in the open scopes
+  */
+  java.util.Set<Symbol> keys();
+}
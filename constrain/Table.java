@@ -58,7 +58,7 @@ class Binder {
  * Note: What happens if a symbol is defined twice in the same scope??
  * </pre>
 */
-public class Table {
+public class Table implements ScopedTable {
 
   private java.util.HashMap<Symbol,Binder> symbols = new java.util.HashMap<Symbol,Binder>();
   private Symbol top;    // reference to last symbol added to
@@ -91,11 +91,12 @@ public class Table {
 
 
  /**
-  * Gets the object associated with the specified symbol in the Table.
+  * Gets the object associated with the specified symbol in the Table,
+  * or null if the symbol is not bound
   */
   public Object get(Symbol key) {
 	Binder e = symbols.get(key);
-	return e.getValue();
+	return (e != null) ? e.getValue() : null;
   }
 
  /**
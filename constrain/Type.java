@@ -0,0 +1,96 @@
+package constrain;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  Type describes the type of a declaration or expression. There is one
+ *  object per type - INT, BOOLEAN, CHAR, STRING and ERROR are singletons
+ *  and function types are interned by function() - so two types are the
+ *  same exactly when they are the same object and the Constrainer
+ *  compares them with ==<br>
+ *  ERROR is the type of a tree that failed to constrain; checks with an
+ *  ERROR operand report nothing more<br>
+ *  Types are immutable and the intern table is thread safe, so types are
+ *  shared by all compilations
+*/
+public class Type {
+    public static final Type INT = new Type("int"),
+                             BOOLEAN = new Type("boolean"),
+                             CHAR = new Type("char"),
+                             STRING = new Type("String"),
+                             ERROR = new Type("<<error>>");
+
+    private static final ConcurrentHashMap<List<Type>,FunctionType> functionTypes =
+        new ConcurrentHashMap<List<Type>,FunctionType>();
+
+    private final String name;
+
+    Type(String name) {
+        this.name = name;
+    }
+
+/**
+ *  @param result is the type returned by the function
+ *  @param params are the types of the formals, in order
+ *  @return the one FunctionType with this result and these formals
+*/
+    public static FunctionType function(Type result, List<Type> params) {
+        ArrayList<Type> key = new ArrayList<Type>(params.size() + 1);
+        key.add(result);
+        key.addAll(params);
+        FunctionType t = functionTypes.get(key);
+        if (t == null) {
+            FunctionType made = new FunctionType(result, params);
+            t = functionTypes.putIfAbsent(Collections.unmodifiableList(key), made);
+            if (t == null) {
+                t = made;
+            }
+        }
+        return t;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+/**
+ *  The type of a function: its result type and the types of its formals
+*/
+    public static final class FunctionType extends Type {
+        private final Type result;
+        private final Type[] params;
+
+        private FunctionType(Type result, List<Type> params) {
+            super(signature(result, params));
+            this.result = result;
+            this.params = params.toArray(new Type[params.size()]);
+        }
+
+        public Type getResult() {
+            return result;
+        }
+
+        public int paramCount() {
+            return params.length;
+        }
+
+/**
+ *  @param i is the number of the formal; the first formal is 0
+*/
+        public Type getParam(int i) {
+            return params[i];
+        }
+
+        private static String signature(Type result, List<Type> params) {
+            StringBuilder b = new StringBuilder("(");
+            String sep = "";
+            for (Type p : params) {
+                b.append(sep).append(p);
+                sep = ",";
+            }
+            return b.append(")->").append(result).toString();
+        }
+    }
+}
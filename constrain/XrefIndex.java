@@ -0,0 +1,140 @@
+package constrain;
+
+import ast.AST;
+import java.util.Arrays;
+
+/**
+ *  XrefIndex maps each declaration to the uses of the name it declares:
+ *  the reverse of the decorations the Constrainer puts on each use<br>
+ *  The index is kept in three int arrays (compressed sparse rows):
+ *  decls holds the node numbers of the declarations that have uses, in
+ *  increasing order; the uses of decls[i] are
+ *  uses[offsets[i]] .. uses[offsets[i+1] - 1], in increasing node number
+ *  order. A lookup is a binary search in decls<br>
+ *  The Constrainer records each link with a Builder as it decorates a
+ *  use; builders filled on different threads are merged, and build()
+ *  sorts the links, so the index does not depend on the order in which
+ *  function bodies were checked
+*/
+public class XrefIndex {
+    private static final int[] NONE = new int[0];
+
+    private int[] decls;
+    private int[] offsets;
+    private int[] uses;
+
+    private XrefIndex(int[] decls, int[] offsets, int[] uses) {
+        this.decls = decls;
+        this.offsets = offsets;
+        this.uses = uses;
+    }
+
+/**
+ *  @param declNodeNum is the node number of a DeclTree or FunctionDeclTree
+ *  @return the node numbers of the IdTrees that refer to it, in order
+*/
+    public int[] getUses(int declNodeNum) {
+        int i = Arrays.binarySearch(decls, declNodeNum);
+        return (i < 0) ? NONE : Arrays.copyOfRange(uses, offsets[i], offsets[i + 1]);
+    }
+
+    public int[] getUses(AST decl) {
+        return getUses(decl.getNodeNum());
+    }
+
+/**
+ *  @return the number of uses of the declaration, without copying them
+*/
+    public int useCount(int declNodeNum) {
+        int i = Arrays.binarySearch(decls, declNodeNum);
+        return (i < 0) ? 0 : offsets[i + 1] - offsets[i];
+    }
+
+/**
+ *  @return the node numbers of the declarations with at least one use
+*/
+    public int[] getDecls() {
+        return decls.clone();
+    }
+
+/**
+ *  @return the total number of links in the index
+*/
+    public int size() {
+        return uses.length;
+    }
+
+/**
+ *  Builder collects (declaration, use) links; each link is packed into
+ *  one long so collecting does not allocate per link
+*/
+    public static class Builder {
+        private long[] links = new long[64];
+        private int size = 0;
+
+        public void add(int declNodeNum, int useNodeNum) {
+            if (size == links.length) {
+                links = Arrays.copyOf(links, 2 * size);
+            }
+            links[size++] = ((long)declNodeNum << 32) | (useNodeNum & 0xffffffffL);
+        }
+
+/**
+ *  add all of the links collected by another builder
+*/
+        public void addAll(Builder other) {
+            if (size + other.size > links.length) {
+                links = Arrays.copyOf(links, Math.max(2 * links.length, size + other.size));
+            }
+            System.arraycopy(other.links, 0, links, size, other.size);
+            size += other.size;
+        }
+
+/**
+ *  remove every link that another builder holds, however many times
+ *  it was added
+*/
+        public void removeAll(Builder other) {
+            long[] drop = Arrays.copyOf(other.links, other.size);
+            Arrays.sort(drop);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (Arrays.binarySearch(drop, links[i]) < 0) {
+                    links[kept++] = links[i];
+                }
+            }
+            size = kept;
+        }
+
+/**
+ *  @return the index of the links added so far; repeated links count once
+*/
+        public XrefIndex build() {
+            long[] sorted = Arrays.copyOf(links, size);
+            Arrays.sort(sorted);
+            int n = 0, declCount = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    if (n == 0 || (sorted[i] >>> 32) != (sorted[n - 1] >>> 32)) {
+                        declCount++;
+                    }
+                    sorted[n++] = sorted[i];
+                }
+            }
+            int[] decls = new int[declCount],
+                  offsets = new int[declCount + 1],
+                  uses = new int[n];
+            int d = -1;
+            for (int i = 0; i < n; i++) {
+                int decl = (int)(sorted[i] >>> 32);
+                if (d < 0 || decls[d] != decl) {
+                    decls[++d] = decl;
+                    offsets[d] = i;
+                }
+                uses[i] = (int)sorted[i];
+            }
+            offsets[declCount] = n;
+            return new XrefIndex(decls, offsets, uses);
+        }
+    }
+}
@@ -14,6 +14,7 @@ public class Lexer {
   // next character to process
   private char ch;
   private SourceReader source;
+  private SymbolTable symbols;    // interns the strings of this compilation
 
   // positions in line of current token
   private int startPosition, endPosition;
@@ -23,12 +24,25 @@ public class Lexer {
    * @param sourceFile is the name of the File to read the program source from
    */
   public Lexer( String sourceFile ) throws Exception {
-    // init token table
-    new TokenType();
+    this( sourceFile, new SymbolTable() );
+  }
+
+  /**
+   *  Lexer constructor
+   * @param sourceFile is the name of the File to read the program source from
+   * @param symbols is the symbol table of the compilation; it already
+   * holds the reserved words
+   */
+  public Lexer( String sourceFile, SymbolTable symbols ) throws Exception {
+    this.symbols = symbols;
     source = new SourceReader( sourceFile );
     ch = source.read();
   }
 
+  public SymbolTable getSymbols() {
+    return symbols;
+  }
+
   /**
    *  newIdTokens are either ids or reserved words; new id's will be inserted
    *  in the symbol table with an indication that they are id's
@@ -38,7 +52,7 @@ public class Lexer {
    *  @return the Token; either an id or one for the reserved words
    */
   public Token newIdToken( String id, int startPosition, int endPosition) { //line number added
-    return new Token(startPosition, endPosition, source.getLineNumber(), Symbol.symbol( id, Tokens.Identifier ) );
+    return new Token(startPosition, endPosition, source.getLineNumber(), symbols.symbol( id, Tokens.Identifier ) );
   }
 
   /**
@@ -53,7 +67,7 @@ public class Lexer {
    *  @return the int Token
    */
   public Token newNumberToken( String number, int startPosition, int endPosition ) { //line number added
-    return new Token(startPosition, endPosition, source.getLineNumber(), Symbol.symbol( number, Tokens.INTeger));
+    return new Token(startPosition, endPosition, source.getLineNumber(), symbols.symbol( number, Tokens.INTeger));
   }
 
 
@@ -66,10 +80,10 @@ public class Lexer {
    *  @return the stringLit Token
    */
   public Token newStringLitToken (String stringLiteral, int startPosition, int endPosition){
-    return new Token(startPosition, endPosition, source.getLineNumber(), Symbol.symbol(stringLiteral, Tokens.StringLit));
+    return new Token(startPosition, endPosition, source.getLineNumber(), symbols.symbol(stringLiteral, Tokens.StringLit));
   }
   public Token newStringLitToken (String stringLiteral, int startPosition, int endPosition, int lineNumber){
-    return new Token(startPosition, endPosition, lineNumber, Symbol.symbol(stringLiteral, Tokens.StringLit));
+    return new Token(startPosition, endPosition, lineNumber, symbols.symbol(stringLiteral, Tokens.StringLit));
   }
 
   /**
@@ -81,10 +95,10 @@ public class Lexer {
    *  @return the charLit Token
    */
   public Token newCharLitToken (String charLiteral, int startPosition, int endPosition){
-    return new Token(startPosition, endPosition, source.getLineNumber(), Symbol.symbol(charLiteral, Tokens.CharLit));
+    return new Token(startPosition, endPosition, source.getLineNumber(), symbols.symbol(charLiteral, Tokens.CharLit));
   }
   public Token newCharLitToken (String charLiteral, int startPosition, int endPosition, int lineNumber){
-    return new Token(startPosition, endPosition, lineNumber, Symbol.symbol(charLiteral, Tokens.CharLit));
+    return new Token(startPosition, endPosition, lineNumber, symbols.symbol(charLiteral, Tokens.CharLit));
   }
 
   /**
@@ -113,7 +127,7 @@ public class Lexer {
     }
 
     // ensure it's a valid token
-    Symbol sym = Symbol.symbol( s, Tokens.BogusToken );
+    Symbol sym = symbols.symbol( s, Tokens.BogusToken );
 
     if( sym == null ) {
       System.out.println( "******** illegal character: " + s );
@@ -256,7 +270,7 @@ public class Lexer {
       // check if valid 2 char operator; if it's not in the symbol
       // table then don't insert it since we really have a one char
       // token
-      sym = Symbol.symbol( op, Tokens.BogusToken );
+      sym = symbols.symbol( op, Tokens.BogusToken );
       if (sym == null) {
         // it must be a one char token
         return makeToken( charOld, startPosition, endPosition);
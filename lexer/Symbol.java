@@ -3,21 +3,23 @@ package lexer;
 /**
  *  The Symbol class is used to store all user strings along with
  *  an indication of the kind of strings they are; e.g. the id "abc" will
- *  store the "abc" in name and Sym.Tokens.Identifier in kind
+ *  store the "abc" in name and Sym.Tokens.Identifier in kind<br>
+ *  Symbols are created by a SymbolTable
 */
 public class Symbol {
   private String name;
   // token kind of symbol
   private Tokens kind;
+  // dense number of the symbol: 0 for the first symbol interned, 1 for the
+  // next, ...; used to index arrays instead of hashing the symbol
+  private int id;
 
-  private Symbol( String n, Tokens kind ) {
+  Symbol( String n, Tokens kind, int id ) {
     name = n;
     this.kind = kind;
+    this.id = id;
   }
 
-  // symbols contains all strings in the source program
-  private static java.util.HashMap<String,Symbol> symbols = new java.util.HashMap<String,Symbol>();
-
   @Override
   public String toString() {
     return name;
@@ -28,21 +30,10 @@ public class Symbol {
   }
 
   /**
-   * Return the unique symbol associated with a string.
-   * Repeated calls to <tt>symbol("abc")</tt> will return the same Symbol.
+   * @return the dense id of this symbol within its SymbolTable; ids run
+   * from 0 to the table's count() - 1
    */
-  public static Symbol symbol( String newTokenString, Tokens kind ) {
-    Symbol s = symbols.get( newTokenString );
-    if( s == null ) {
-      if( kind == Tokens.BogusToken ) {
-        // bogus string so don't enter into symbols
-        return null;
-      }
-      // System.out.println( "new symbol: " + u + " Kind: " + kind );
-      s = new Symbol( newTokenString, kind );
-      symbols.put( newTokenString, s );
-    }
-
-    return s;
+  public int getId() {
+    return id;
   }
 }
\ No newline at end of file
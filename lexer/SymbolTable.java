@@ -0,0 +1,53 @@
+package lexer;
+
+/**
+ *  A SymbolTable interns the strings of one compilation: each distinct
+ *  string gets one Symbol, numbered densely in the order the strings are
+ *  first seen<br>
+ *  The reserved words and operators (the TokenType table) are entered
+ *  when the table is created; every compilation has its own SymbolTable,
+ *  so compilations running at the same time do not share symbols
+*/
+public class SymbolTable {
+  // symbols contains all strings in the source program
+  private java.util.HashMap<String,Symbol> symbols = new java.util.HashMap<String,Symbol>();
+  private TokenType tokenType;
+
+  public SymbolTable() {
+    tokenType = new TokenType( this );
+  }
+
+  /**
+   * Return the unique symbol associated with a string.
+   * Repeated calls to <tt>symbol("abc")</tt> will return the same Symbol.
+   * @return the symbol, or null if the string is not in the table and
+   * kind is BogusToken
+   */
+  public Symbol symbol( String newTokenString, Tokens kind ) {
+    Symbol s = symbols.get( newTokenString );
+    if( s == null ) {
+      if( kind == Tokens.BogusToken ) {
+        // bogus string so don't enter into symbols
+        return null;
+      }
+      s = new Symbol( newTokenString, kind, symbols.size() );
+      symbols.put( newTokenString, s );
+    }
+
+    return s;
+  }
+
+  /**
+   * @return the number of symbols interned so far
+   */
+  public int count() {
+    return symbols.size();
+  }
+
+  /**
+   * @return the table of Symbols for the reserved words and operators
+   */
+  public TokenType getTokenType() {
+    return tokenType;
+  }
+}
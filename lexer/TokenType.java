@@ -6,48 +6,48 @@ package lexer;
  *  constants to their Symbols
 */
 public class TokenType {
-   public static java.util.HashMap<Tokens,Symbol> tokens = new java.util.HashMap<Tokens,Symbol>();
-   public TokenType() {
-     tokens.put(Tokens.Program, Symbol.symbol("program",Tokens.Program));
-     tokens.put(Tokens.Int, Symbol.symbol("int",Tokens.Int));
-     tokens.put(Tokens.BOOLean, Symbol.symbol("boolean",Tokens.BOOLean));
-     tokens.put(Tokens.If, Symbol.symbol("if",Tokens.If));
-     tokens.put(Tokens.Then, Symbol.symbol("then",Tokens.Then));
-     tokens.put(Tokens.Else, Symbol.symbol("else",Tokens.Else));
-     tokens.put(Tokens.While, Symbol.symbol("while",Tokens.While));
-     tokens.put(Tokens.Function, Symbol.symbol("function",Tokens.Function));
-     tokens.put(Tokens.Return, Symbol.symbol("return",Tokens.Return));
-     tokens.put(Tokens.Identifier, Symbol.symbol("<id>",Tokens.Identifier));
-     tokens.put(Tokens.INTeger, Symbol.symbol("<int>",Tokens.INTeger));
-     tokens.put(Tokens.LeftBrace, Symbol.symbol("{",Tokens.LeftBrace));
-     tokens.put(Tokens.RightBrace, Symbol.symbol("}",Tokens.RightBrace));
-     tokens.put(Tokens.LeftParen, Symbol.symbol("(",Tokens.LeftParen));
-     tokens.put(Tokens.RightParen, Symbol.symbol(")",Tokens.RightParen));
-     tokens.put(Tokens.Comma, Symbol.symbol(",",Tokens.Comma));
-     tokens.put(Tokens.Assign, Symbol.symbol("=",Tokens.Assign));
-     tokens.put(Tokens.Equal, Symbol.symbol("==",Tokens.Equal));
-     tokens.put(Tokens.NotEqual, Symbol.symbol("!=",Tokens.NotEqual));
-     tokens.put(Tokens.Less, Symbol.symbol("<",Tokens.Less));
-     tokens.put(Tokens.LessEqual, Symbol.symbol("<=",Tokens.LessEqual));
-     tokens.put(Tokens.Plus, Symbol.symbol("+",Tokens.Plus));
-     tokens.put(Tokens.Minus, Symbol.symbol("-",Tokens.Minus));
-     tokens.put(Tokens.Or, Symbol.symbol("|",Tokens.Or));
-     tokens.put(Tokens.And, Symbol.symbol("&",Tokens.And));
-     tokens.put(Tokens.Multiply, Symbol.symbol("*",Tokens.Multiply));
-     tokens.put(Tokens.Divide, Symbol.symbol("/",Tokens.Divide));
-     tokens.put(Tokens.Comment, Symbol.symbol("//",Tokens.Comment));
-     tokens.put(Tokens.Greater, Symbol.symbol(">",Tokens.Greater));
-     tokens.put(Tokens.GreaterEqual, Symbol.symbol(">=",Tokens.GreaterEqual));
-     tokens.put(Tokens.Char, Symbol.symbol("char",Tokens.Char));
-     tokens.put(Tokens.CharLit, Symbol.symbol("<char>",Tokens.CharLit));
-     tokens.put(Tokens.SingleQuote, Symbol.symbol("'",Tokens.SingleQuote));
-     tokens.put(Tokens.StringType, Symbol.symbol("String",Tokens.StringType));
-     tokens.put(Tokens.StringLit, Symbol.symbol("<String>",Tokens.StringLit));
-     tokens.put(Tokens.DoubleQuote, Symbol.symbol("\"",Tokens.DoubleQuote));
-     tokens.put(Tokens.Switch, Symbol.symbol("switch",Tokens.Switch));
-     tokens.put(Tokens.Case, Symbol.symbol("case",Tokens.Case));
-     tokens.put(Tokens.Colon, Symbol.symbol(":",Tokens.Colon));
-     tokens.put(Tokens.Default, Symbol.symbol("default",Tokens.Default));
-     tokens.put(Tokens.Unless, Symbol.symbol("unless",Tokens.Unless));
+   public java.util.HashMap<Tokens,Symbol> tokens = new java.util.HashMap<Tokens,Symbol>();
+   public TokenType(SymbolTable symbols) {
+     tokens.put(Tokens.Program, symbols.symbol("program",Tokens.Program));
+     tokens.put(Tokens.Int, symbols.symbol("int",Tokens.Int));
+     tokens.put(Tokens.BOOLean, symbols.symbol("boolean",Tokens.BOOLean));
+     tokens.put(Tokens.If, symbols.symbol("if",Tokens.If));
+     tokens.put(Tokens.Then, symbols.symbol("then",Tokens.Then));
+     tokens.put(Tokens.Else, symbols.symbol("else",Tokens.Else));
+     tokens.put(Tokens.While, symbols.symbol("while",Tokens.While));
+     tokens.put(Tokens.Function, symbols.symbol("function",Tokens.Function));
+     tokens.put(Tokens.Return, symbols.symbol("return",Tokens.Return));
+     tokens.put(Tokens.Identifier, symbols.symbol("<id>",Tokens.Identifier));
+     tokens.put(Tokens.INTeger, symbols.symbol("<int>",Tokens.INTeger));
+     tokens.put(Tokens.LeftBrace, symbols.symbol("{",Tokens.LeftBrace));
+     tokens.put(Tokens.RightBrace, symbols.symbol("}",Tokens.RightBrace));
+     tokens.put(Tokens.LeftParen, symbols.symbol("(",Tokens.LeftParen));
+     tokens.put(Tokens.RightParen, symbols.symbol(")",Tokens.RightParen));
+     tokens.put(Tokens.Comma, symbols.symbol(",",Tokens.Comma));
+     tokens.put(Tokens.Assign, symbols.symbol("=",Tokens.Assign));
+     tokens.put(Tokens.Equal, symbols.symbol("==",Tokens.Equal));
+     tokens.put(Tokens.NotEqual, symbols.symbol("!=",Tokens.NotEqual));
+     tokens.put(Tokens.Less, symbols.symbol("<",Tokens.Less));
+     tokens.put(Tokens.LessEqual, symbols.symbol("<=",Tokens.LessEqual));
+     tokens.put(Tokens.Plus, symbols.symbol("+",Tokens.Plus));
+     tokens.put(Tokens.Minus, symbols.symbol("-",Tokens.Minus));
+     tokens.put(Tokens.Or, symbols.symbol("|",Tokens.Or));
+     tokens.put(Tokens.And, symbols.symbol("&",Tokens.And));
+     tokens.put(Tokens.Multiply, symbols.symbol("*",Tokens.Multiply));
+     tokens.put(Tokens.Divide, symbols.symbol("/",Tokens.Divide));
+     tokens.put(Tokens.Comment, symbols.symbol("//",Tokens.Comment));
+     tokens.put(Tokens.Greater, symbols.symbol(">",Tokens.Greater));
+     tokens.put(Tokens.GreaterEqual, symbols.symbol(">=",Tokens.GreaterEqual));
+     tokens.put(Tokens.Char, symbols.symbol("char",Tokens.Char));
+     tokens.put(Tokens.CharLit, symbols.symbol("<char>",Tokens.CharLit));
+     tokens.put(Tokens.SingleQuote, symbols.symbol("'",Tokens.SingleQuote));
+     tokens.put(Tokens.StringType, symbols.symbol("String",Tokens.StringType));
+     tokens.put(Tokens.StringLit, symbols.symbol("<String>",Tokens.StringLit));
+     tokens.put(Tokens.DoubleQuote, symbols.symbol("\"",Tokens.DoubleQuote));
+     tokens.put(Tokens.Switch, symbols.symbol("switch",Tokens.Switch));
+     tokens.put(Tokens.Case, symbols.symbol("case",Tokens.Case));
+     tokens.put(Tokens.Colon, symbols.symbol(":",Tokens.Colon));
+     tokens.put(Tokens.Default, symbols.symbol("default",Tokens.Default));
+     tokens.put(Tokens.Unless, symbols.symbol("unless",Tokens.Unless));
    }
 }
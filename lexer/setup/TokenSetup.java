@@ -78,8 +78,8 @@ public class TokenSetup {
     table.println (" *  constants to their Symbols" );
     table.println ("*/" );
     table.println ("public class TokenType {" );
-    table.println ("   public static java.util.HashMap<Tokens,Symbol> tokens = new java.util.HashMap<Tokens,Symbol>();" );
-    table.println ("   public TokenType() {" );
+    table.println ("   public java.util.HashMap<Tokens,Symbol> tokens = new java.util.HashMap<Tokens,Symbol>();" );
+    table.println ("   public TokenType(SymbolTable symbols) {" );
     symbols.println ("package lexer;" );
     symbols.println (" " );
     symbols.println ("/**" );
@@ -97,7 +97,7 @@ public class TokenSetup {
       String symType = "Tokens." + type;
 
       table.println(
-        "     tokens.put(" + symType  + ", Symbol.symbol(\"" +
+        "     tokens.put(" + symType  + ", symbols.symbol(\"" +
         value + "\"," + symType + "));"
       );
 
@@ -1,6 +1,7 @@
 package parser;
 
 import java.util.*;
+import compiler.CompilationContext;
 import lexer.*;
 import ast.*;
 
@@ -56,6 +57,9 @@ public class Parser {
 
     private Token currentToken;
     private Lexer lex;
+    private NodeIndex index = new NodeIndex();  // node numbers for each kind of tree
+    private NodeFactory nodes;                  // creates the trees for the AST
+    private CompilationContext context;         // state of this compilation
     private EnumSet<Tokens> relationalOps
             = EnumSet.of(Tokens.Equal, Tokens.NotEqual, Tokens.Less, Tokens.LessEqual, Tokens.Greater, Tokens.GreaterEqual);
     private EnumSet<Tokens> addingOps
@@ -70,8 +74,34 @@ public class Parser {
      * @exception Exception - thrown for any problems at startup (e.g. I/O)
      */
     public Parser(String sourceProgram) throws Exception {
+        this(sourceProgram, new NodeFactory());
+    }
+
+    /**
+     * Construct a new Parser that takes its trees from the given factory;
+     * e.g. a NodeArena to recycle the storage of earlier compilations
+     *
+     * @param sourceProgram - source file name
+     * @param nodes - the factory used to create every tree in the AST
+     * @exception Exception - thrown for any problems at startup (e.g. I/O)
+     */
+    public Parser(String sourceProgram, NodeFactory nodes) throws Exception {
+        this(sourceProgram, new CompilationContext(nodes));
+    }
+
+    /**
+     * Construct a new Parser for one compilation; the trees come from the
+     * context's factory and the strings are interned in its symbol table
+     *
+     * @param sourceProgram - source file name
+     * @param context - the state of this compilation
+     * @exception Exception - thrown for any problems at startup (e.g. I/O)
+     */
+    public Parser(String sourceProgram, CompilationContext context) throws Exception {
+        this.context = context;
+        this.nodes = context.getNodes();
         try {
-            lex = new Lexer(sourceProgram);
+            lex = new Lexer(sourceProgram, context.getSymbols());
             scan();
         } catch (Exception e) {
             System.out.println("********exception*******" + e.toString());
@@ -83,6 +113,28 @@ public class Parser {
         return lex;
     }
 
+    public CompilationContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the index of the trees built by this parser, by kind of tree
+     */
+    public NodeIndex getNodeIndex() {
+        return index;
+    }
+
+    /**
+     * Record each new tree in the node index, with the line of the token
+     * the parser is looking at when the tree is built
+     *
+     * @param t is the tree just created
+     * @return t
+     */
+    private AST record(AST t) {
+        return index.record(t, (currentToken == null) ? -1 : currentToken.getLineNumber());
+    }
+
     /**
      * Execute the parse command
      *
@@ -110,7 +162,7 @@ public class Parser {
     public AST rProgram() throws SyntaxError {
         // note that rProgram actually returns a ProgramTree; we use the 
         // principle of substitutability to indicate it returns an AST
-        AST t = new ProgramTree();
+        AST t = record(nodes.programTree());
         expect(Tokens.Program);
         t.addKid(rBlock());
         return t;
@@ -128,7 +180,7 @@ public class Parser {
      */
     public AST rBlock() throws SyntaxError {
         expect(Tokens.LeftBrace);
-        AST t = new BlockTree();
+        AST t = record(nodes.blockTree());
         while (startingDecl()) {  // get decls
                 t.addKid(rDecl());
         }
@@ -141,11 +193,11 @@ public class Parser {
 
     public AST rSwitchBlock(Token switchArgumentSymbol) throws SyntaxError{
         expect(Tokens.LeftBrace);
-        AST switchBlockTree = new SwitchBlockTree();
+        AST switchBlockTree = record(nodes.switchBlockTree());
 
         while(!isThisTok(Tokens.RightBrace)) { //was Tokens.case
             expect(Tokens.Case); //checks for case token and advances
-            AST caseTree = new CaseTree();
+            AST caseTree = record(nodes.caseTree());
 
             if (isThisDataType()) {
                 caseTree.addKid(createDataTree()); //creates appropriate tree based on token's type
@@ -155,16 +207,16 @@ public class Parser {
             }
             expect(Tokens.Colon);
 
-            AST caseChild = (new AssignTree().addKid(rName())); //rName scans, new assign tree with identifier child
+            AST caseChild = (record(nodes.assignTree()).addKid(rName())); //rName scans, new assign tree with identifier child
             expect(Tokens.Assign);
             caseTree.addKid(caseChild.addKid(rExpr()));  //rExpr scans, makes expression child of assign tree, make caseTree parent of assign tree
             switchBlockTree.addKid(caseTree); //make case tree child of switchBlockTree
 
             if (isThisTok(Tokens.Default)) {    //is there a default statement?
-                AST defaultTree = new DefaultTree(); //create tree
+                AST defaultTree = record(nodes.defaultTree()); //create tree
                 scan();
                 expect(Tokens.Colon);
-                defaultTree.addKid(new AssignTree().addKid(rName())); //add id to new assign tree
+                defaultTree.addKid(record(nodes.assignTree()).addKid(rName())); //add id to new assign tree
                 expect(Tokens.Assign);
                 defaultTree.getKid(1).addKid(rExpr());
                 switchBlockTree.addKid(defaultTree); //add default to switchBlockTree
@@ -179,13 +231,13 @@ public class Parser {
     private AST createDataTree() {
         AST tree;
         if(isThisTok(Tokens.StringLit)){
-            tree = new StringLitTree(currentToken);
+            tree = record(nodes.stringLitTree(currentToken));
         }else if(isThisTok(Tokens.CharLit)){
-            tree = new CharLitTree(currentToken);
+            tree = record(nodes.charLitTree(currentToken));
         }else if(isThisTok(Tokens.INTeger)){
-            tree = new IntTree(currentToken);
+            tree = record(nodes.intTree(currentToken));
         }else{
-            tree = new BoolTypeTree();
+            tree = record(nodes.boolTypeTree());
         }
         return tree;
     }
@@ -224,12 +276,12 @@ public class Parser {
         t = rType();
         t1 = rName();
         if (isThisTok(Tokens.LeftParen)) { // function
-            t = (new FunctionDeclTree()).addKid(t).addKid(t1);
+            t = record(nodes.functionDeclTree()).addKid(t).addKid(t1);
             t.addKid(rFunHead());
             t.addKid(rBlock());
             return t;
         }
-        t = (new DeclTree()).addKid(t).addKid(t1);
+        t = record(nodes.declTree()).addKid(t).addKid(t1);
         return t;
     }
 
@@ -245,17 +297,17 @@ public class Parser {
     public AST rType() throws SyntaxError {
         AST t;
         if (isThisTok(Tokens.Int)) {
-            t = new IntTypeTree();
+            t = record(nodes.intTypeTree());
             scan();
         }else if (isThisTok(Tokens.StringType) ){
-            t = new StringTypeTree();
+            t = record(nodes.stringTypeTree());
             scan();
         }else if(isThisTok(Tokens.Char)){
-            t = new CharTree();
+            t = record(nodes.charTree());
             scan();
         }else{
             expect(Tokens.BOOLean);
-            t = new BoolTypeTree();
+            t = record(nodes.boolTypeTree());
         }
         return t;
     }
@@ -271,7 +323,7 @@ public class Parser {
      * @exception SyntaxError - thrown for any syntax error
      */
     public AST rFunHead() throws SyntaxError {
-        AST t = new FormalsTree();
+        AST t = record(nodes.formalsTree());
         expect(Tokens.LeftParen);
         if (!isThisTok(Tokens.RightParen)) {
             do {
@@ -301,7 +353,7 @@ public class Parser {
         AST tree;
         if (isThisTok(Tokens.If)) {
             scan();
-            tree = new IfTree();
+            tree = record(nodes.ifTree());
             tree.addKid(rExpr());
             expect(Tokens.Then);
             tree.addKid(rBlock());
@@ -312,14 +364,14 @@ public class Parser {
             return tree;
         } else if (isThisTok(Tokens.While)) {
             scan();
-            tree = new WhileTree();
+            tree = record(nodes.whileTree());
             tree.addKid(rExpr());
             tree.addKid(rBlock());
             return tree;
 
         } else if (isThisTok(Tokens.Return)) {
             scan();
-            tree = new ReturnTree();
+            tree = record(nodes.returnTree());
             tree.addKid(rExpr());
             return tree;
 
@@ -328,7 +380,7 @@ public class Parser {
 
         } else if (isThisTok(Tokens.Unless)) {
             scan(); //advance to nextToken
-            tree = new UnlessTree();
+            tree = record(nodes.unlessTree());
             tree.addKid(rExpr());
             expect(Tokens.Then); //check for then; advance
             tree.addKid(rBlock());
@@ -338,7 +390,7 @@ public class Parser {
             }
 
         } else if (isThisTok(Tokens.Switch)) {
-            tree = new SwitchTree();
+            tree = record(nodes.switchTree());
             scan(); //advance to token following switch
             expect(Tokens.LeftParen); //if true advance
 
@@ -349,7 +401,7 @@ public class Parser {
             tree.addKid(rSwitchBlock(switchArgToken)); //switch block handles braces and case statements
         } else {
             tree = rName();
-            tree = (new AssignTree()).addKid(tree);
+            tree = record(nodes.assignTree()).addKid(tree);
             expect(Tokens.Assign);
             tree.addKid(rExpr());
         }
@@ -436,7 +488,7 @@ public class Parser {
             return t;
         }
         if (isThisTok(Tokens.INTeger)) {  //  -> <int>
-            t = new IntTree(currentToken);
+            t = record(nodes.intTree(currentToken));
             scan();
             return t;
         }
@@ -445,7 +497,7 @@ public class Parser {
             return t;
         }
         scan();     // -> name '(' (e list ',')? ) ==> call
-        t = (new CallTree()).addKid(t);
+        t = record(nodes.callTree()).addKid(t);
         if (!isThisTok(Tokens.RightParen)) {
             do {
                 t.addKid(rExpr());
@@ -472,7 +524,7 @@ public class Parser {
     public AST rName() throws SyntaxError {
         AST t;
         if (isThisTok(Tokens.Identifier)) {
-            t = new IdTree(currentToken);
+            t = record(nodes.idTree(currentToken));
             scan();
             return t;
         }
@@ -482,7 +534,7 @@ public class Parser {
     AST getRelationTree() {  // build tree with current token's relation
         Tokens kind = currentToken.getKind();
         if (relationalOps.contains(kind)) {
-            AST t = new RelOpTree(currentToken);
+            AST t = record(nodes.relOpTree(currentToken));
             scan();
             return t;
         } else {
@@ -493,7 +545,7 @@ public class Parser {
     private AST getAddOperTree() {
         Tokens kind = currentToken.getKind();
         if (addingOps.contains(kind)) {
-            AST t = new AddOpTree(currentToken);
+            AST t = record(nodes.addOpTree(currentToken));
             scan();
             return t;
         } else {
@@ -504,7 +556,7 @@ public class Parser {
     private AST getMultOperTree() {
         Tokens kind = currentToken.getKind();
         if (multiplyingOps.contains(kind)) {
-            AST t = new MultOpTree(currentToken);
+            AST t = record(nodes.multOpTree(currentToken));
             scan();
             return t;
         } else {
@@ -0,0 +1,234 @@
+package rewrite;
+
+import ast.*;
+import compiler.CompilationContext;
+import constrain.Intrinsics;
+import lexer.*;
+import java.util.*;
+
+/**
+ *  ConstantFolder evaluates constant subexpressions and simplifies
+ *  arithmetic identities in a constrained AST, before code generation;
+ *  it is a set of RewriteRules run by a RewriteEngine<ul>
+ *  <li>FoldAddOp, FoldMultOp: +, - , * and / of two int literals become
+ *  a literal. Arithmetic wraps as Java int arithmetic does, which is
+ *  what the VM does; a division by 0 is left for the VM to report, and
+ *  | and &amp; are not folded
+ *  <li>FoldRelOp: a comparison of two int literals becomes 1 or 0, the
+ *  VM's true and false
+ *  <li>Reassociate: (x + c1) + c2 becomes x + (c1 + c2)
+ *  <li>AddZero, MultOne: x + 0, 0 + x, x - 0, x * 1, 1 * x and x / 1
+ *  become x
+ *  <li>MultZero: x * 0 and 0 * x become 0 if x has no calls and no
+ *  divisions, since a call may have side effects (e.g. write) and a
+ *  division may divide by 0</ul>
+ *  New literals are made with the compilation's NodeFactory and
+ *  SymbolTable and decorated as the Constrainer decorates literals; the
+ *  decorations of the trees that are removed are not touched, so e.g. a
+ *  XrefIndex built by the Constrainer still lists their uses
+*/
+public class ConstantFolder {
+    private CompilationContext context;
+    private RewriteEngine engine = new RewriteEngine();
+    private int foldedNodes = 0;
+
+/**
+ *  @param context is the compilation the trees belong to; the
+ *  Constrainer has set its intrinsics
+*/
+    public ConstantFolder(CompilationContext context) {
+        this.context = context;
+        engine.addRule(new RewriteRule("FoldAddOp", Pattern.of(AddOpTree.class,
+                                Pattern.of(IntTree.class), Pattern.of(IntTree.class))) {
+            public AST rewrite(AST t) {
+                return fold(t);
+            }
+        });
+        engine.addRule(new RewriteRule("FoldMultOp", Pattern.of(MultOpTree.class,
+                                Pattern.of(IntTree.class), Pattern.of(IntTree.class))) {
+            public AST rewrite(AST t) {
+                return fold(t);
+            }
+        });
+        engine.addRule(new RewriteRule("FoldRelOp", Pattern.of(RelOpTree.class,
+                                Pattern.of(IntTree.class), Pattern.of(IntTree.class))) {
+            public AST rewrite(AST t) {
+                return fold(t);
+            }
+        });
+        engine.addRule(new RewriteRule("Reassociate", Pattern.of(AddOpTree.class,
+                                Pattern.of(AddOpTree.class, Pattern.any(), Pattern.of(IntTree.class)).
+                                    withSymbol("+"),
+                                Pattern.of(IntTree.class)).withSymbol("+")) {
+            public AST rewrite(AST t) {
+                AST inner = t.getKid(1);
+                Long c1 = value(inner.getKid(2)), c2 = value(t.getKid(2));
+                if (c1 == null || c2 == null) {
+                    return null;
+                }
+                AST sum = literal((int)(c1 + c2), context.getIntrinsics().intTree);
+                inner.setKid(2, sum);
+                return replaced(t, inner, 2);
+            }
+        });
+        engine.addRule(new RewriteRule("AddZero", Pattern.of(AddOpTree.class,
+                                Pattern.any(), Pattern.any())) {
+            public AST rewrite(AST t) {
+                String op = t.getSymbol().toString();
+                if (isValue(t.getKid(2), 0) && (op.equals("+") || op.equals("-"))) {
+                    return replaced(t, t.getKid(1), 2);
+                }
+                if (isValue(t.getKid(1), 0) && op.equals("+")) {
+                    return replaced(t, t.getKid(2), 2);
+                }
+                return null;
+            }
+        });
+        engine.addRule(new RewriteRule("MultOne", Pattern.of(MultOpTree.class,
+                                Pattern.any(), Pattern.any())) {
+            public AST rewrite(AST t) {
+                String op = t.getSymbol().toString();
+                if (isValue(t.getKid(2), 1) && (op.equals("*") || op.equals("/"))) {
+                    return replaced(t, t.getKid(1), 2);
+                }
+                if (isValue(t.getKid(1), 1) && op.equals("*")) {
+                    return replaced(t, t.getKid(2), 2);
+                }
+                return null;
+            }
+        });
+        engine.addRule(new RewriteRule("MultZero", Pattern.of(MultOpTree.class,
+                                Pattern.any(), Pattern.any()).withSymbol("*")) {
+            public AST rewrite(AST t) {
+                AST zero = isValue(t.getKid(1), 0) ? t.getKid(1) :
+                           isValue(t.getKid(2), 0) ? t.getKid(2) : null;
+                if (zero == null || hasEffect(t)) {
+                    return null;
+                }
+                return replaced(t, zero, size(t) - 1);
+            }
+        });
+    }
+
+/**
+ *  fold the tree
+ *  @return the root of the folded tree
+*/
+    public AST execute(AST t) {
+        return engine.execute(t);
+    }
+
+/**
+ *  @return the number of nodes removed from the tree by folding, e.g.
+ *  folding 1+2 into 3 removes 2 nodes
+*/
+    public int getFoldedNodes() {
+        return foldedNodes;
+    }
+
+/**
+ *  @return the number of times each rule was applied
+*/
+    public Map<String,Integer> getRewriteCounts() {
+        return engine.getRewriteCounts();
+    }
+
+    public void printCounts() {
+        engine.printCounts();
+        System.out.println("nodes folded: " + foldedNodes);
+    }
+
+/**
+ *  t is an operator with two int literal kids
+ *  @return the literal with the value of t or null if it can't be folded
+*/
+    private AST fold(AST t) {
+        Long left = value(t.getKid(1)), right = value(t.getKid(2));
+        if (left == null || right == null) {
+            return null;
+        }
+        int a = (int)(long)left, b = (int)(long)right, result;
+        boolean relation = false;
+        switch (t.getSymbol().toString()) {
+            case "+": result = a + b; break;
+            case "-": result = a - b; break;
+            case "*": result = a * b; break;
+            case "/":
+                if (b == 0) {
+                    return null;   // the VM reports it when the code runs
+                }
+                result = a / b;
+                break;
+            case "==": result = (a == b) ? 1 : 0; relation = true; break;
+            case "!=": result = (a != b) ? 1 : 0; relation = true; break;
+            case "<":  result = (a < b) ? 1 : 0;  relation = true; break;
+            case "<=": result = (a <= b) ? 1 : 0; relation = true; break;
+            case ">":  result = (a > b) ? 1 : 0;  relation = true; break;
+            case ">=": result = (a >= b) ? 1 : 0; relation = true; break;
+            default:
+                return null;
+        }
+        Intrinsics intrinsics = context.getIntrinsics();
+        return replaced(t, literal(result, relation ? intrinsics.boolTree : intrinsics.intTree), 2);
+    }
+
+/**
+ *  count the nodes that go away when t is replaced by replacement
+*/
+    private AST replaced(AST t, AST replacement, int removed) {
+        foldedNodes += removed;
+        return replacement;
+    }
+
+    private AST literal(int value, AST type) {
+        Symbol s = context.getSymbols().symbol(Integer.toString(value), Tokens.INTeger);
+        AST lit = context.getNodes().intTree(new Token(-1, -1, -1, s));
+        lit.setDecoration(type);
+        return lit;
+    }
+
+/**
+ *  @return the value of an int literal or null if t isn't one that
+ *  fits in an int
+*/
+    private static Long value(AST t) {
+        if (t.getKind() != NodeKind.Int) {
+            return null;
+        }
+        try {
+            return (long)Integer.parseInt(t.getSymbol().toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isValue(AST t, int v) {
+        Long value = value(t);
+        return value != null && value == v;
+    }
+
+/**
+ *  @return true if evaluating t may do more than compute a value: it
+ *  has a call or a division, which the VM reports when it divides by 0
+*/
+    private static boolean hasEffect(AST t) {
+        if (t.getKind() == NodeKind.Call ||
+                (t.getKind() == NodeKind.MultOp && t.getSymbol().toString().equals("/"))) {
+            return true;
+        }
+        for (AST kid : t.getKids()) {
+            if (hasEffect(kid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int size(AST t) {
+        int n = 1;
+        for (AST kid : t.getKids()) {
+            n += size(kid);
+        }
+        return n;
+    }
+}
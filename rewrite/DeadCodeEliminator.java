@@ -0,0 +1,191 @@
+package rewrite;
+
+import ast.*;
+import java.util.*;
+
+/**
+ *  DeadCodeEliminator removes code from a constrained AST that can never
+ *  run, before code generation:<ul>
+ *  <li>an if whose condition is an int literal (e.g. a comparison
+ *  folded by ConstantFolder) is replaced by the branch it takes, and a
+ *  while whose condition is 0 is removed
+ *  <li>the statements of a block after a statement that always returns
+ *  (a return, or an if whose branches both always return) are removed
+ *  <li>function decls that can't be reached from the main program are
+ *  removed; a function is reached if the main program, or a function
+ *  that is reached, has a call to it</ul>
+ *  Statements are simplified first since removing a branch can remove
+ *  the only call to a function. Calls are found through the decorations
+ *  the Constrainer put on the function names. getCalledFunctions also
+ *  tells whether the read and write intrinsics are called so Codegen
+ *  can leave out their codes (see Codegen.setCalledFunctions)
+*/
+public class DeadCodeEliminator {
+    private Set<AST> called = Collections.newSetFromMap(new IdentityHashMap<AST,Boolean>());
+    private int removedFunctions = 0, removedStatements = 0, simplifiedConditions = 0;
+
+/**
+ *  eliminate the dead code of the program
+ *  @param t is the ProgramTree
+ *  @return t
+*/
+    public AST execute(AST t) {
+        simplify(t);
+        findCalls(t.getKid(1));
+        removeUncalled(t);
+        return t;
+    }
+
+/**
+ *  @return the function decls that are called, including the intrinsic
+ *  read and write functions if they are
+*/
+    public Set<AST> getCalledFunctions() {
+        return Collections.unmodifiableSet(called);
+    }
+
+    public int getRemovedFunctions() {
+        return removedFunctions;
+    }
+
+/**
+ *  @return the number of statements removed after a return or with a
+ *  branch that isn't taken
+*/
+    public int getRemovedStatements() {
+        return removedStatements;
+    }
+
+/**
+ *  @return the number of ifs and whiles with a constant condition
+*/
+    public int getSimplifiedConditions() {
+        return simplifiedConditions;
+    }
+
+    public void printCounts() {
+        System.out.println("functions removed: " + removedFunctions);
+        System.out.println("statements removed: " + removedStatements);
+        System.out.println("constant conditions: " + simplifiedConditions);
+    }
+
+/**
+ *  simplify the statements of every block in t, innermost blocks first
+*/
+    private void simplify(AST t) {
+        for (AST kid : t.getKids()) {
+            simplify(kid);
+        }
+        if (t.getKind() != NodeKind.Block) {
+            return;
+        }
+        boolean returned = false;
+        for (int i = 1; i <= t.kidCount(); ) {
+            AST kid = t.getKid(i);
+            if (isDecl(kid)) {
+                i++;
+                continue;
+            }
+            if (returned) {
+                t.removeKid(i);
+                removedStatements++;
+                continue;
+            }
+            Long condition = (kid.getKind() == NodeKind.If || kid.getKind() == NodeKind.While) ?
+                             constant(kid.getKid(1)) : null;
+            if (condition != null && kid.getKind() == NodeKind.If) {
+                simplifiedConditions++;
+                AST branch = (condition != 0) ? kid.getKid(2) : kid.getKid(3);
+                if (branch == null) {
+                    t.removeKid(i);
+                    removedStatements++;
+                    continue;
+                }
+                t.setKid(i, branch);
+                kid = branch;
+            } else if (condition != null && condition == 0) {
+                simplifiedConditions++;
+                t.removeKid(i);
+                removedStatements++;
+                continue;
+            }
+            returned = alwaysReturns(kid);
+            i++;
+        }
+    }
+
+    private static boolean isDecl(AST t) {
+        return t.getKind() == NodeKind.Decl || t.getKind() == NodeKind.FunctionDecl;
+    }
+
+/**
+ *  @return the value of an int literal condition, else null
+*/
+    private static Long constant(AST t) {
+        if (t.getKind() != NodeKind.Int) {
+            return null;
+        }
+        try {
+            return (long)Integer.parseInt(t.getSymbol().toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+/**
+ *  @return true if executing the statement always ends with a return
+*/
+    private static boolean alwaysReturns(AST t) {
+        switch (t.getKind()) {
+            case Return:
+                return true;
+            case Block:
+                for (AST kid : t.getKids()) {
+                    if (!isDecl(kid) && alwaysReturns(kid)) {
+                        return true;
+                    }
+                }
+                return false;
+            case If:
+                return t.kidCount() == 3 && alwaysReturns(t.getKid(2)) && alwaysReturns(t.getKid(3));
+            default:
+                return false;
+        }
+    }
+
+/**
+ *  add the functions called from t, and the functions they call, to
+ *  called; the function decls in t are only looked at if they're called
+*/
+    private void findCalls(AST t) {
+        ArrayDeque<AST> work = new ArrayDeque<AST>();
+        work.push(t);
+        while (!work.isEmpty()) {
+            AST node = work.pop();
+            if (node.getKind() == NodeKind.Call) {
+                AST fct = node.getKid(1).getDecoration();
+                if (fct != null && fct.getKind() == NodeKind.FunctionDecl && called.add(fct)) {
+                    work.push(fct.getKid(4));   // the body of the function
+                }
+            }
+            for (AST kid : node.getKids()) {
+                if (kid.getKind() != NodeKind.FunctionDecl) {
+                    work.push(kid);
+                }
+            }
+        }
+    }
+
+    private void removeUncalled(AST t) {
+        for (int i = 1; i <= t.kidCount(); ) {
+            AST kid = t.getKid(i);
+            if (kid.getKind() == NodeKind.FunctionDecl && !called.contains(kid)) {
+                t.removeKid(i);
+                removedFunctions++;
+                continue;
+            }
+            removeUncalled(kid);
+            i++;
+        }
+    }
+}
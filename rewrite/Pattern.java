@@ -0,0 +1,90 @@
+package rewrite;
+
+import ast.AST;
+
+/**
+ *  A Pattern describes the shape of a tree that a RewriteRule applies to;
+ *  e.g. an adding op whose kids are both integer literals:<br>
+ *  <pre>
+ *      Pattern.of(AddOpTree.class, Pattern.of(IntTree.class), Pattern.of(IntTree.class))
+ *  </pre>
+ *  A pattern with no kid patterns matches a node of the given class
+ *  regardless of its kids; a pattern with kid patterns also requires the
+ *  node to have exactly that many kids, each matching in order
+*/
+public class Pattern {
+    private Class<? extends AST> kind;   // null matches any node
+    private String symbol;               // null matches any symbol
+    private Pattern[] kids;
+
+    private Pattern(Class<? extends AST> kind, String symbol, Pattern[] kids) {
+        this.kind = kind;
+        this.symbol = symbol;
+        this.kids = kids;
+    }
+
+/**
+ *  @return a pattern matching any tree
+*/
+    public static Pattern any() {
+        return new Pattern(null, null, new Pattern[0]);
+    }
+
+/**
+ *  @param kind is the class the node must have
+ *  @param kids are the patterns the node's kids must match, if any
+ *  @return the new pattern
+*/
+    public static Pattern of(Class<? extends AST> kind, Pattern... kids) {
+        return new Pattern(kind, null, kids);
+    }
+
+/**
+ *  @param symbol is the string the node's Symbol must have, e.g. "+"
+ *  @return a copy of this pattern that also requires the given symbol
+*/
+    public Pattern withSymbol(String symbol) {
+        return new Pattern(kind, symbol, kids);
+    }
+
+/**
+ *  @return the number of levels of a tree this pattern looks at, e.g. 2
+ *  for an adding op over two literals
+*/
+    public int depth() {
+        int depth = 0;
+        for (Pattern kid : kids) {
+            depth = Math.max(depth, kid.depth());
+        }
+        return depth + 1;
+    }
+
+/**
+ *  @param t is the tree to test
+ *  @return true if the node and, recursively, its kids match this pattern
+*/
+    public boolean matches(AST t) {
+        if (t == null) {
+            return false;
+        }
+        if (kind != null && t.getClass() != kind) {
+            return false;
+        }
+        if (symbol != null &&
+            (t.getSymbol() == null || !symbol.equals(t.getSymbol().toString()))) {
+            return false;
+        }
+        if (kids.length == 0) {
+            return true;
+        }
+        if (t.kidCount() != kids.length) {
+            return false;
+        }
+        for (int i = 0; i < kids.length; i++) {
+            if (!kids[i].matches(t.getKid(i + 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,200 @@
+package rewrite;
+
+import ast.AST;
+import java.util.*;
+
+/**
+ *  The RewriteEngine applies a list of RewriteRules to an AST until no rule
+ *  applies anywhere in the tree<br>
+ *  Rather than making repeated passes over the whole tree the engine keeps a
+ *  worklist of nodes: every node is queued once, kids before their parents;
+ *  when a rule rewrites a node only the parent and the part of the
+ *  replacement the rule could have built or changed are queued again: the
+ *  nodes within the depth of the rule's pattern and the nodes the engine
+ *  hasn't seen. A subtree the rule merely moved into the replacement, e.g.
+ *  x in (x+1)+2 => x+3, is not walked again, so the cost of reaching the
+ *  fixpoint is proportional to the tree size plus the number of rewrites
+ *  times the size of the patterns and of the nodes the rules create<br>
+ *  The engine relies on the parent links kept by AST.addKid/setKid. When a
+ *  rule replaces a node, that node and the nodes under it that didn't move
+ *  into the replacement are marked detached, so a worklist entry for one
+ *  of them is skipped with a set lookup rather than a walk to the root
+*/
+public class RewriteEngine {
+    private ArrayList<RewriteRule> rules = new ArrayList<RewriteRule>();
+    private LinkedHashMap<String,Integer> counts = new LinkedHashMap<String,Integer>();
+    private int maxRewrites = Integer.MAX_VALUE;
+
+    private AST root;
+    private ArrayDeque<AST> worklist = new ArrayDeque<AST>();
+    private Set<AST> pending = Collections.newSetFromMap(new IdentityHashMap<AST,Boolean>());
+    private Set<AST> seen = Collections.newSetFromMap(new IdentityHashMap<AST,Boolean>());
+    private Set<AST> detached = Collections.newSetFromMap(new IdentityHashMap<AST,Boolean>());
+
+    public RewriteEngine() {}
+
+    public RewriteEngine(List<RewriteRule> rules) {
+        for (RewriteRule rule : rules) {
+            addRule(rule);
+        }
+    }
+
+/**
+ *  rules are tried in the order they are added; the first rule that
+ *  returns a replacement wins
+*/
+    public RewriteEngine addRule(RewriteRule rule) {
+        rules.add(rule);
+        counts.put(rule.getName(), 0);
+        return this;
+    }
+
+/**
+ *  @param max is the number of rewrites after which the engine gives up;
+ *  used to catch rule sets that never reach a fixpoint
+*/
+    public void setMaxRewrites(int max) {
+        maxRewrites = max;
+    }
+
+/**
+ *  Rewrite the tree to a fixpoint
+ *  @param t is the root of the tree to rewrite
+ *  @return the root of the rewritten tree; this differs from t only if
+ *  a rule replaced the root itself
+*/
+    public AST execute(AST t) {
+        root = t;
+        queueChanged(t, 0);     // nothing is seen yet, so this queues every node
+        int rewrites = 0;
+        while (!worklist.isEmpty()) {
+            AST node = worklist.pop();
+            pending.remove(node);
+            if (detached.contains(node) || (node != root && node.getParent() == null)) {
+                continue;   // node, or an ancestor, was replaced after node was queued
+            }
+            for (RewriteRule rule : rules) {
+                if (!rule.getPattern().matches(node)) {
+                    continue;
+                }
+                AST replacement = rule.rewrite(node);
+                if (replacement == null) {
+                    continue;
+                }
+                if (++rewrites > maxRewrites) {
+                    throw new IllegalStateException("no fixpoint after " + maxRewrites +
+                        " rewrites; last rule applied: " + rule.getName());
+                }
+                counts.put(rule.getName(), counts.get(rule.getName()) + 1);
+                AST parent = (node == root) ? null : node.getParent();
+                if (replacement != node) {
+                    replace(node, replacement);
+                }
+                if (parent != null) {
+                    queue(parent);
+                }
+                queueChanged(replacement, rule.getPattern().depth());
+                break;
+            }
+        }
+        AST result = root;
+        root = null;
+        detached.clear();
+        seen.clear();
+        return result;
+    }
+
+/**
+ *  @return the number of rewrites each rule performed, in rule order;
+ *  counts accumulate over calls to execute
+*/
+    public Map<String,Integer> getRewriteCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public int getTotalRewrites() {
+        int total = 0;
+        for (int n : counts.values()) {
+            total += n;
+        }
+        return total;
+    }
+
+    public void printCounts() {
+        for (Map.Entry<String,Integer> e : counts.entrySet()) {
+            System.out.println(e.getKey() + ": " + e.getValue());
+        }
+    }
+
+    private void replace(AST old, AST replacement) {
+        AST parent = old.getParent();
+        if (parent != null) {
+            ArrayList<AST> kids = parent.getKids();
+            for (int i = 0; i < kids.size(); i++) {
+                if (kids.get(i) == old) {
+                    parent.setKid(i + 1, replacement);
+                    break;
+                }
+            }
+        }
+        if (old == root) {
+            root = replacement;
+        }
+        markDetached(old);
+    }
+
+/**
+ *  mark old and the nodes under it that are still its descendants; a kid
+ *  whose parent is no longer the node it is listed under was moved into
+ *  the replacement, so the walk only visits the nodes that were removed
+*/
+    private void markDetached(AST old) {
+        ArrayDeque<AST> stack = new ArrayDeque<AST>();
+        stack.push(old);
+        while (!stack.isEmpty()) {
+            AST node = stack.pop();
+            detached.add(node);
+            for (AST kid : node.getKids()) {
+                if (kid.getParent() == node) {
+                    stack.push(kid);
+                }
+            }
+        }
+    }
+
+    private void queue(AST t) {
+        seen.add(t);
+        if (pending.add(t)) {
+            worklist.push(t);
+        }
+    }
+
+/**
+ *  queue the nodes of t that are within depth levels of t, where a rule
+ *  may have changed kids in place, and below that only the nodes the
+ *  engine hasn't seen; a seen node there heads a subtree that was moved
+ *  intact, so neither it nor anything under it needs another look<br>
+ *  Nodes are queued in preorder; popping the worklist then visits kids
+ *  before parents
+*/
+    private void queueChanged(AST t, int depth) {
+        ArrayDeque<AST> stack = new ArrayDeque<AST>();
+        ArrayDeque<Integer> levels = new ArrayDeque<Integer>();
+        stack.push(t);
+        levels.push(0);
+        while (!stack.isEmpty()) {
+            AST node = stack.pop();
+            int level = levels.pop();
+            detached.remove(node);
+            queue(node);
+            ArrayList<AST> kids = node.getKids();
+            for (int i = kids.size() - 1; i >= 0; i--) {
+                AST kid = kids.get(i);
+                if (level + 1 < depth || !seen.contains(kid)) {
+                    stack.push(kid);
+                    levels.push(level + 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package rewrite;
+
+import ast.AST;
+
+/**
+ *  A RewriteRule replaces trees of a given shape with an equivalent tree;
+ *  the RewriteEngine tries each rule on a node whose shape matches the
+ *  rule's pattern and asks the rule for the replacement<br>
+ *  Rules must make progress (e.g. shrink the tree) so that repeated
+ *  application reaches a fixpoint<br>
+ *  A rule may change in place only the nodes its pattern covers; below
+ *  that it may move subtrees into the replacement but not change them,
+ *  since the engine doesn't look at a moved subtree again
+*/
+public abstract class RewriteRule {
+    private String name;
+    private Pattern pattern;
+
+/**
+ *  @param name is used when reporting rewrite counts
+ *  @param pattern is the shape of the trees this rule applies to
+*/
+    public RewriteRule(String name, Pattern pattern) {
+        this.name = name;
+        this.pattern = pattern;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+/**
+ *  @param t is a tree matching this rule's pattern
+ *  @return the tree to put in place of t; t itself if t was changed in
+ *  place, or null if the rule declines to rewrite t
+*/
+    public abstract AST rewrite(AST t);
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
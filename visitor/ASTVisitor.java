@@ -13,14 +13,69 @@ import ast.*;
  *  a reference to the type tree representing the type of the expression
 */
 public abstract class ASTVisitor {
+    private boolean switchDispatch = false;
+
+/**
+ *  choose how visitKids reaches the visit methods: through each kid's
+ *  accept method (the default) or through dispatch, a single switch on
+ *  the kid's NodeKind
+*/
+    public void setSwitchDispatch(boolean on) {
+        switchDispatch = on;
+    }
 
     public void visitKids(AST t) {
+        if (switchDispatch) {
+            for (AST kid : t.getKids()) {
+                dispatch(kid);
+            }
+            return;
+        }
         for (AST kid : t.getKids()) {
             kid.accept(this);
         }
         return;
     }
 
+/**
+ *  visit t by switching on its NodeKind; this has the same effect as
+ *  t.accept(this) but the call site in the traversal stays monomorphic -
+ *  only the visitor's own methods are called from here
+ *  @return whatever the visit method for t's kind returns
+*/
+    public Object dispatch(AST t) {
+        switch (t.getKind()) {
+            case Program: return visitProgramTree(t);
+            case Block: return visitBlockTree(t);
+            case FunctionDecl: return visitFunctionDeclTree(t);
+            case Call: return visitCallTree(t);
+            case Decl: return visitDeclTree(t);
+            case IntType: return visitIntTypeTree(t);
+            case BoolType: return visitBoolTypeTree(t);
+            case Formals: return visitFormalsTree(t);
+            case ActualArgs: return visitActualArgsTree(t);
+            case If: return visitIfTree(t);
+            case While: return visitWhileTree(t);
+            case Return: return visitReturnTree(t);
+            case Assign: return visitAssignTree(t);
+            case Int: return visitIntTree(t);
+            case Id: return visitIdTree(t);
+            case RelOp: return visitRelOpTree(t);
+            case AddOp: return visitAddOpTree(t);
+            case MultOp: return visitMultOpTree(t);
+            case Switch: return visitSwitchTree(t);
+            case Case: return visitCaseTree(t);
+            case SwitchBlock: return visitSwitchBlockTree(t);
+            case Default: return visitDefaultTree(t);
+            case Unless: return visitUnlessTree(t);
+            case StringType: return visitStringTypeTree(t);
+            case Char: return visitCharTree(t);
+            case StringLit: return visitStringLitTree(t);
+            case CharLit: return visitCharLitTree(t);
+        }
+        throw new IllegalArgumentException("no visit method for " + t.getKind());
+    }
+
     public abstract Object visitProgramTree(AST t);
     public abstract Object visitBlockTree(AST t);
     public abstract Object visitFunctionDeclTree(AST t);
@@ -1,29 +1,49 @@
 package visitor;
 
 import ast.AST;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  *
  * @author Lowell Milliken
  */
-public class CountVisitor extends ASTVisitor {
+public class CountVisitor extends TreeVisitor<Void, Void> implements TreePass {
 
-  private int [] nCount = new int[ 100 ];
+  private int [] nCount = new int[ 16 ];
   private int depth = 0;
   private int maxDepth = 0;
 
-  private void count( AST t ) {
+  /**
+   *  every visit method defaults to visitChildren, so counting here
+   *  counts every node in the tree
+   */
+  @Override
+  public Void visitChildren( AST t, Void context ) {
+    enter( t, depth );
+    depth++;
+    super.visitChildren( t, context );
+    depth--;
+    return null;
+  }
+
+  /**
+   *  TreePass callbacks: count the node at its depth
+   */
+  public void enter( AST t, int depth ) {
+    if( depth >= nCount.length ) {
+      nCount = Arrays.copyOf( nCount, Math.max( depth + 1, nCount.length * 2 ));
+    }
     nCount[ depth ]++;
 
     if( depth > maxDepth ) {
       maxDepth = depth;
     }
+  }
 
-    depth++;
-    visitKids( t );
-    depth--;
+  public void exit( AST t, int depth ) {}
+
+  public Object finish() {
+    return getCount();
   }
 
   public int[] getCount() {
@@ -42,175 +62,42 @@ public class CountVisitor extends ASTVisitor {
     }
   }
 
-  public Object visitProgramTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitBlockTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitFunctionDeclTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitCallTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitDeclTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitIntTypeTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitNumberTypeTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitScientificTypeTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitFloatTypeTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitVoidTypeTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitBoolTypeTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitFormalsTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitActualArgsTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitIfTree( AST t ) {
-    count( t );
-    return null;
-  }
-
+  /**
+   *  count the nodes at each depth with a ParallelTraversal; large functions
+   *  and blocks are counted on other threads
+   *  @return the number of nodes at each depth, as getCount would
+   */
+  public static int[] parallelCount( AST t ) {
+    int[] count = new ParallelTraversal<int[]>( new DepthCount() ).execute( t );
+    int depths = count.length;
 
-  public Object visitWhileTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitForTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitReturnTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitAssignTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitIntTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitNumberTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitScientificTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitFloatTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitVoidTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitIdTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitRelOpTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitAddOpTree( AST t ) {
-    count( t );
-    return null;
-  }
-  public Object visitMultOpTree( AST t ) {
-    count( t );
-    return null;
-  }
-
-
-  //new methods here
-  public Object visitRepeatTree( AST t ) {
-    count( t );
-    return null;
-  }
-
-  //added
-  @Override
-  public Object visitSwitchTree(AST tree) {
-    count(tree);
-    return null;
-  }
-
-  @Override
-  public Object visitCaseTree(AST tree) {
-    count(tree);
-    return null;
-  }
-
-  @Override
-  public Object visitSwitchBlockTree(AST tree) {
-    count(tree);
-    return null;
-  }
-
-  @Override
-  public Object visitDefaultTree(AST tree) {
-    count(tree);
-    return null;
-  }
-  public Object visitUnlessTree( AST t ) {
-    count( t );
-    return null;
-  }
+    while( depths > 0 && count[ depths - 1 ] == 0 ) {
+      depths--;
+    }
 
-  @Override
-  public Object visitStringTypeTree(AST tree) {
-    count(tree);
-    return null;
+    return Arrays.copyOf( count, depths );
   }
 
-  @Override
-  public Object visitCharTree(AST tree) {
-    count(tree);
-    return null;
-  }
+  // per-depth counts; an accumulator grows as deeper nodes are visited
+  private static class DepthCount implements ParallelTraversal.Pass<int[]> {
+    public int[] newAccumulator() {
+      return new int[ 0 ];
+    }
 
-  @Override
-  public Object visitStringLitTree(AST tree) {
-    count(tree);
-    return null;
-  }
+    public int[] visit( AST t, int depth, int[] acc ) {
+      if( depth >= acc.length ) {
+        acc = Arrays.copyOf( acc, Math.max( depth + 1, acc.length * 2 ));
+      }
+      acc[ depth ]++;
+      return acc;
+    }
 
-  @Override
-  public Object visitCharLitTree(AST tree) {
-    count(tree);
-    return null;
+    public int[] merge( int[] left, int[] right ) {
+      int[] sum = Arrays.copyOf( left, Math.max( left.length, right.length ));
+      for( int i = 0; i < right.length; i++ ) {
+        sum[ i ] += right[ i ];
+      }
+      return sum;
+    }
   }
-
-}
\ No newline at end of file
+}
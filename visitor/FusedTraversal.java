@@ -0,0 +1,79 @@
+package visitor;
+
+import ast.AST;
+import java.util.*;
+
+/**
+ *  FusedTraversal walks an AST once and drives any number of TreePasses:
+ *  at each node every pass gets its enter callback, in the order the passes
+ *  were given, then the kids are walked, then every pass gets its exit
+ *  callback<br>
+ *  Compared with running each pass as its own visitor this touches each
+ *  node (and its kids list) once instead of once per pass; the walk uses an
+ *  explicit stack so very deep trees do not overflow the Java stack
+*/
+public class FusedTraversal {
+    private TreePass[] passes;
+    private Object[] results;
+
+    public FusedTraversal(TreePass... passes) {
+        this.passes = passes.clone();
+        this.results = new Object[passes.length];
+    }
+
+/**
+ *  walk the tree, then collect each pass's result
+ *  @param root is the tree to walk
+*/
+    public void execute(AST root) {
+        AST[] nodes = new AST[64];
+        int[] nextKid = new int[64];   // index of the next kid to walk
+        int top = 0;
+        nodes[0] = root;
+        enter(root, 0);
+        while (top >= 0) {
+            AST t = nodes[top];
+            ArrayList<AST> kids = t.getKids();
+            if (nextKid[top] < kids.size()) {
+                AST kid = kids.get(nextKid[top]++);
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top * 2);
+                    nextKid = Arrays.copyOf(nextKid, top * 2);
+                }
+                nodes[top] = kid;
+                nextKid[top] = 0;
+                enter(kid, top);
+            } else {
+                exit(t, top);
+                nodes[top--] = null;
+            }
+        }
+        for (int i = 0; i < passes.length; i++) {
+            results[i] = passes[i].finish();
+        }
+    }
+
+/**
+ *  @param i is the position of the pass in the constructor's argument list
+ *  @return the result the pass returned from finish
+*/
+    public Object getResult(int i) {
+        return results[i];
+    }
+
+    public List<Object> getResults() {
+        return Arrays.asList(results.clone());
+    }
+
+    private void enter(AST t, int depth) {
+        for (TreePass pass : passes) {
+            pass.enter(t, depth);
+        }
+    }
+
+    private void exit(AST t, int depth) {
+        for (TreePass pass : passes) {
+            pass.exit(t, depth);
+        }
+    }
+}
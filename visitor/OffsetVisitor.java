@@ -6,7 +6,7 @@ import graphics.ASTData;
 import java.util.HashMap;
 
 
-public class OffsetVisitor extends ASTVisitor {
+public class OffsetVisitor extends ASTVisitor implements TreePass {
 
   private int currentOffset = 0;
   private int depth = 0;
@@ -16,11 +16,32 @@ public class OffsetVisitor extends ASTVisitor {
   private HashMap<AST, ASTData> hashMap;
 
   public OffsetVisitor(AST tree){
-    this.hashMap = new HashMap<>();
+    this();
     accept(tree);
     updateMaxDimensions();
   }
 
+  /**
+   * create an OffsetVisitor that is driven as a TreePass by a FusedTraversal;
+   * the offsets are available once the traversal finishes
+   */
+  public OffsetVisitor(){
+    this.hashMap = new HashMap<>();
+  }
+
+  // TreePass callbacks: offsets are placed bottom-up, so all the work is in exit
+  public void enter(AST tree, int depth) {}
+
+  public void exit(AST tree, int depth) {
+    this.depth = depth;
+    place(tree);
+  }
+
+  public Object finish() {
+    updateMaxDimensions();
+    return hashMap;
+  }
+
   public HashMap<AST, ASTData> getHashMap(){
     return this.hashMap;
   }
@@ -42,6 +63,11 @@ public class OffsetVisitor extends ASTVisitor {
       }
       depth--; //each time all kids visited return to parent depth
     }
+    place(tree);
+  }
+
+  // called once all of tree's kids have been placed; depth is tree's depth
+  private void place( AST tree ) {
     if(tree.kidCount() == 0){ //if no child Nodes (apply base case)
       currentOffset = offsetTrackerArray[depth];
     } else {  //if node has children
@@ -0,0 +1,156 @@
+package visitor;
+
+import ast.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ *  ParallelTraversal runs an analysis whose results combine associatively
+ *  over subtrees (e.g. node counts per depth) on a ForkJoinPool<br>
+ *  The tree is split at large FunctionDeclTrees and BlockTrees: each such
+ *  subtree with at least <i>threshold</i> nodes becomes its own task with its
+ *  own accumulator; everything else is visited by the task that found it.
+ *  Partial results are merged in tree order, so the result does not depend
+ *  on how the tasks were scheduled. A tree smaller than the threshold is
+ *  visited entirely on the calling thread<br>
+ *  The analysis must only read the tree
+ *  @param <A> the accumulator type of the pass
+*/
+public class ParallelTraversal<A> {
+
+/**
+ *  The analysis run by a ParallelTraversal
+ *  @param <A> the accumulator type
+*/
+    public interface Pass<A> {
+
+/**
+ *  @return an empty accumulator; called once per task
+*/
+        A newAccumulator();
+
+/**
+ *  @param t is the next node, in preorder within the task's part of the tree
+ *  @param depth is the depth of t in the whole tree
+ *  @param acc is the accumulator of the current task
+ *  @return the updated accumulator (acc itself or a replacement)
+*/
+        A visit(AST t, int depth, A acc);
+
+/**
+ *  @param left is the result for the part of the tree before right
+ *  @param right is the result for the part of the tree after left
+ *  @return the combined result
+*/
+        A merge(A left, A right);
+    }
+
+    public static final int DEFAULT_THRESHOLD = 10000;
+
+    private Pass<A> pass;
+    private int threshold;
+    private ForkJoinPool pool;
+
+    public ParallelTraversal(Pass<A> pass) {
+        this(pass, DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+/**
+ *  @param pass is the analysis to run
+ *  @param threshold is the smallest subtree (in nodes) worth its own task
+ *  @param pool runs the tasks
+*/
+    public ParallelTraversal(Pass<A> pass, int threshold, ForkJoinPool pool) {
+        this.pass = pass;
+        this.threshold = Math.max(1, threshold);
+        this.pool = pool;
+    }
+
+/**
+ *  @param root is the tree to analyze
+ *  @return the merged result of the pass over the whole tree
+*/
+    public A execute(AST root) {
+        Part task = new Part(root, 0);
+        if (!atLeast(root, threshold)) {
+            return task.compute();
+        }
+        return pool.invoke(task);
+    }
+
+    private static boolean splittable(AST t) {
+        return t.getClass() == FunctionDeclTree.class || t.getClass() == BlockTree.class;
+    }
+
+    // does t have at least n nodes? stops counting as soon as it knows
+    private static boolean atLeast(AST t, int n) {
+        ArrayDeque<AST> stack = new ArrayDeque<AST>();
+        stack.push(t);
+        int count = 0;
+        while (!stack.isEmpty()) {
+            if (++count >= n) {
+                return true;
+            }
+            for (AST kid : stack.pop().getKids()) {
+                stack.push(kid);
+            }
+        }
+        return false;
+    }
+
+/**
+ *  A Part visits one subtree; large splittable subtrees below its root
+ *  are handed to new Parts. The results are kept as a list of pieces in
+ *  tree order - accumulators for the nodes visited here alternating with
+ *  the forked Parts - and merged left to right once the forks are joined
+*/
+    private class Part extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+        private AST root;
+        private int depth;
+
+        Part(AST root, int depth) {
+            this.root = root;
+            this.depth = depth;
+        }
+
+        @Override
+        protected A compute() {
+            ArrayList<Object> pieces = new ArrayList<Object>();
+            A acc = pass.newAccumulator();
+            ArrayDeque<AST> nodes = new ArrayDeque<AST>();
+            ArrayDeque<Integer> depths = new ArrayDeque<Integer>();
+            nodes.push(root);
+            depths.push(depth);
+            while (!nodes.isEmpty()) {
+                AST t = nodes.pop();
+                int d = depths.pop();
+                if (t != root && splittable(t) && atLeast(t, threshold)) {
+                    pieces.add(acc);
+                    Part fork = new Part(t, d);
+                    fork.fork();
+                    pieces.add(fork);
+                    acc = pass.newAccumulator();
+                    continue;
+                }
+                acc = pass.visit(t, d, acc);
+                ArrayList<AST> kids = t.getKids();
+                for (int i = kids.size() - 1; i >= 0; i--) {
+                    nodes.push(kids.get(i));
+                    depths.push(d + 1);
+                }
+            }
+            pieces.add(acc);
+
+            A result = null;
+            for (Object piece : pieces) {
+                @SuppressWarnings("unchecked")
+                A next = (piece instanceof RecursiveTask) ?
+                    ((Part)piece).join() : (A)piece;
+                result = (result == null) ? next : pass.merge(result, next);
+            }
+            return result;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package visitor;
 
 import ast.*;
+import java.util.Arrays;
 
 /**
  *  PrintVisitor is used to visit an AST and print it using
@@ -15,15 +16,18 @@ import ast.*;
  *  7.   Kid3
  *  </pre>
 */
-public class PrintVisitor extends ASTVisitor {
+public class PrintVisitor extends ASTVisitor implements TreePass {
     private int indent = 0;
+    private boolean nodeOnly = false;  // true when driven as a TreePass
+
+    private char[] spaces = new char[0];
 
     private void printSpaces(int num) {
-        String s = "";
-        for (int i = 0; i < num; i++) {
-            s += ' ';
+        if (num > spaces.length) {
+            spaces = new char[Math.max(num, 2 * spaces.length)];
+            Arrays.fill(spaces, ' ');
         }
-        System.out.print(s);
+        System.out.print(new String(spaces, 0, num));
     }
 
 /**
@@ -34,7 +38,6 @@ public class PrintVisitor extends ASTVisitor {
  *  indented appropriately
 */
     public void print(String s,AST t) {
-        // assume less than 1000 nodes; no problem for csc 413
         int num = t.getNodeNum();
         AST decoration = t.getDecoration();
         int decNum = (decoration == null)? -1 : decoration.getNodeNum();
@@ -57,11 +60,31 @@ public class PrintVisitor extends ASTVisitor {
             }
         }
         System.out.println(s);
+        if (nodeOnly) {
+            return;     // the FusedTraversal walks the kids
+        }
         indent += 2;
         visitKids(t);
         indent -= 2;
     }
 
+/**
+ *  TreePass callbacks: print just this node, indented by its depth
+*/
+    public void enter(AST t, int depth) {
+        indent = 2 * depth;
+        nodeOnly = true;
+        t.accept(this);
+        nodeOnly = false;
+    }
+
+    public void exit(AST t, int depth) {}
+
+    public Object finish() {
+        indent = 0;
+        return null;
+    }
+
     public Object visitProgramTree(AST t) { print("Program",t);  return null; }
     public Object visitBlockTree(AST t) { print("Block",t);  return null; }
     public Object visitFunctionDeclTree(AST t) { print("FunctionDecl",t);  return null; }
@@ -0,0 +1,233 @@
+package visitor;
+
+import ast.*;
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ *  TreeDumper writes an AST to a Writer in one of three formats:<ul>
+ *  <li>TEXT - the PrintVisitor layout: node number, indentation, the node
+ *  (with its symbol where PrintVisitor shows one) and its Dec:, Label:
+ *  and Addr: annotations
+ *  <li>SEXPR - one parenthesized list per node, kids nested inside:
+ *  <tt>(Id 4 "x" :dec 5 :addr 0)</tt>
+ *  <li>JSON_LINES - one JSON object per node, in preorder, with the number
+ *  of its parent so another process can rebuild the tree:
+ *  <tt>{"node":4,"parent":3,"depth":3,"kind":"Id","symbol":"x","dec":5,"addr":0}</tt>
+ *  </ul>
+ *  The dumper is a TreePass, so it can share a FusedTraversal with other
+ *  passes; output goes through a large buffer and indentation is copied
+ *  from a preallocated array of spaces, so dumping uses memory
+ *  proportional to the depth of the tree, not its size
+*/
+public class TreeDumper implements TreePass {
+
+    public enum Format { TEXT, SEXPR, JSON_LINES }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Writer out;
+    private Format format;
+    private char[] spaces = new char[256];
+    private IOException error;
+
+/**
+ *  @param out receives the dump; it is wrapped in a BufferedWriter unless
+ *  it already is one
+ *  @param format is the layout to write
+*/
+    public TreeDumper(Writer out, Format format) {
+        this.out = (out instanceof BufferedWriter) ? out : new BufferedWriter(out, BUFFER_SIZE);
+        this.format = format;
+        Arrays.fill(spaces, ' ');
+    }
+
+/**
+ *  dump the whole tree and flush the output
+ *  @param t is the root of the tree to dump
+*/
+    public void dump(AST t) throws IOException {
+        new FusedTraversal(this).execute(t);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    public void enter(AST t, int depth) {
+        if (error != null) {
+            return;
+        }
+        try {
+            switch (format) {
+                case TEXT:       enterText(t, depth);  break;
+                case SEXPR:      enterSexpr(t, depth); break;
+                case JSON_LINES: writeJson(t, depth);  break;
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    public void exit(AST t, int depth) {
+        if (error != null || format != Format.SEXPR) {
+            return;
+        }
+        try {
+            out.write(')');
+            if (depth == 0) {
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+/**
+ *  flush the buffered output
+ *  @return the first IOException raised while dumping, or null
+*/
+    public Object finish() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+        return error;
+    }
+
+    private void enterText(AST t, int depth) throws IOException {
+        String num = Integer.toString(t.getNodeNum());
+        out.write(num);
+        out.write(':');
+        indent(Math.max(0, 3 - num.length()) + 2 * depth);
+        out.write(t.getKind().getLabel());
+        if (textSymbol(t)) {
+            out.write(": ");
+            out.write(t.getSymbol().toString());
+        }
+        AST decoration = t.getDecoration();
+        if (decoration != null) {
+            out.write("           Dec: ");
+            out.write(Integer.toString(decoration.getNodeNum()));
+        }
+        if (t.getLabel().length() > 0) {
+            out.write("  Label: ");
+            out.write(t.getLabel());
+        }
+        int addr = address(t);
+        if (addr >= 0) {
+            out.write("  Addr: ");
+            out.write(Integer.toString(addr));
+        }
+        out.write('\n');
+    }
+
+    private void enterSexpr(AST t, int depth) throws IOException {
+        if (depth > 0) {
+            out.write('\n');
+            indent(2 * depth);
+        }
+        out.write('(');
+        out.write(t.getKind().name());
+        out.write(' ');
+        out.write(Integer.toString(t.getNodeNum()));
+        if (t.getSymbol() != null) {
+            out.write(' ');
+            writeString(t.getSymbol().toString());
+        }
+        if (t.getDecoration() != null) {
+            out.write(" :dec ");
+            out.write(Integer.toString(t.getDecoration().getNodeNum()));
+        }
+        if (t.getLabel().length() > 0) {
+            out.write(" :label ");
+            writeString(t.getLabel());
+        }
+        int addr = address(t);
+        if (addr >= 0) {
+            out.write(" :addr ");
+            out.write(Integer.toString(addr));
+        }
+    }
+
+    private void writeJson(AST t, int depth) throws IOException {
+        out.write("{\"node\":");
+        out.write(Integer.toString(t.getNodeNum()));
+        if (depth > 0 && t.getParent() != null) {
+            out.write(",\"parent\":");
+            out.write(Integer.toString(t.getParent().getNodeNum()));
+        }
+        out.write(",\"depth\":");
+        out.write(Integer.toString(depth));
+        out.write(",\"kind\":\"");
+        out.write(t.getKind().name());
+        out.write('"');
+        if (t.getSymbol() != null) {
+            out.write(",\"symbol\":");
+            writeString(t.getSymbol().toString());
+        }
+        if (t.getDecoration() != null) {
+            out.write(",\"dec\":");
+            out.write(Integer.toString(t.getDecoration().getNodeNum()));
+        }
+        if (t.getLabel().length() > 0) {
+            out.write(",\"label\":");
+            writeString(t.getLabel());
+        }
+        int addr = address(t);
+        if (addr >= 0) {
+            out.write(",\"addr\":");
+            out.write(Integer.toString(addr));
+        }
+        out.write("}\n");
+    }
+
+/**
+ *  @return true if PrintVisitor prints the symbol of t; it doesn't for
+ *  string and char literals
+*/
+    private static boolean textSymbol(AST t) {
+        switch (t.getKind()) {
+            case Int: case Id: case RelOp: case AddOp: case MultOp:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int address(AST t) {
+        return (t.getKind() == NodeKind.Id) ? ((IdTree)t).getFrameOffset() : -1;
+    }
+
+    private void indent(int n) throws IOException {
+        if (n > spaces.length) {
+            spaces = new char[Math.max(n, spaces.length * 2)];
+            Arrays.fill(spaces, ' ');
+        }
+        out.write(spaces, 0, n);
+    }
+
+    // quoted string with JSON escapes; also valid in the s-expression format
+    private void writeString(String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n");  break;
+                case '\r': out.write("\\r");  break;
+                case '\t': out.write("\\t");  break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int)c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
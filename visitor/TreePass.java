@@ -0,0 +1,32 @@
+package visitor;
+
+import ast.AST;
+
+/**
+ *  A TreePass is a read-only analysis driven by a FusedTraversal: it is
+ *  told when the traversal enters a node (before the node's kids) and when
+ *  it exits the node (after the kids), and it must not change the tree<br>
+ *  Several passes can then share one walk over the AST
+*/
+public interface TreePass {
+
+/**
+ *  called before any of t's kids are visited
+ *  @param t is the node being entered
+ *  @param depth is the depth of t; the root has depth 0
+*/
+    void enter(AST t, int depth);
+
+/**
+ *  called after all of t's kids have been visited
+ *  @param t is the node being exited
+ *  @param depth is the depth of t; the root has depth 0
+*/
+    void exit(AST t, int depth);
+
+/**
+ *  called once when the traversal is complete
+ *  @return the result of this pass, if it has one
+*/
+    Object finish();
+}
@@ -0,0 +1,291 @@
+package visitor;
+
+import ast.*;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ *  TreeStats gathers size statistics for an AST in one walk:<ul>
+ *  <li>the number of nodes of each NodeKind
+ *  <li>the number of nodes at each depth
+ *  <li>the fan-out distribution (how many nodes have 0, 1, 2, ... kids)
+ *  <li>the largest functions, by node count
+ *  <li>an estimate of the heap retained by the tree, per node class: the
+ *  node itself, its kids ArrayList and backing array, and its label String;
+ *  the number of decorated nodes is reported with each class
+ *  </ul>
+ *  Heap sizes are estimated for a 64-bit JVM with compressed references
+ *  (12 byte object headers, 4 byte references, 8 byte alignment) and
+ *  Latin-1 compact Strings; the node sizes come from the fields of each
+ *  class, so they follow the AST classes as they change<br>
+ *  The report is written as a JSON object by writeJson so it can be kept
+ *  with each build and compared across releases
+*/
+public class TreeStats implements TreePass {
+    public static final int DEFAULT_TOP_FUNCTIONS = 10;
+
+    private static final int HEADER = 12, REF = 4, ALIGN = 8;
+    private static final int ARRAYLIST = align(HEADER + 4 + 4 + REF);
+    private static final HashMap<Class<?>,Integer> shallowSizes = new HashMap<Class<?>,Integer>();
+
+    private int nodes = 0;
+    private int[] kindCounts = new int[NodeKind.values().length];
+    private int[] depthCounts = new int[16];
+    private int maxDepth = -1;
+    private int[] fanOut = new int[8];
+    private int maxFanOut = -1;
+    private int topFunctions;
+
+    // heap estimate by node class, indexed by kind ordinal
+    private long[] nodeBytes = new long[NodeKind.values().length];
+    private long[] kidsBytes = new long[NodeKind.values().length];
+    private long[] labelBytes = new long[NodeKind.values().length];
+    private int[] decorated = new int[NodeKind.values().length];
+
+    // functions still open in the walk, and the node count when each was entered
+    private ArrayDeque<AST> openFunctions = new ArrayDeque<AST>();
+    private ArrayDeque<Integer> openCounts = new ArrayDeque<Integer>();
+    private ArrayList<FunctionSize> functions = new ArrayList<FunctionSize>();
+
+    public TreeStats() {
+        this(DEFAULT_TOP_FUNCTIONS);
+    }
+
+/**
+ *  @param topFunctions is the number of largest functions to report
+*/
+    public TreeStats(int topFunctions) {
+        this.topFunctions = topFunctions;
+    }
+
+/**
+ *  gather the statistics for a whole tree
+ *  @return this, for chaining into writeJson
+*/
+    public TreeStats execute(AST t) {
+        new FusedTraversal(this).execute(t);
+        return this;
+    }
+
+    public void enter(AST t, int depth) {
+        int k = t.getKind().ordinal();
+        nodes++;
+        kindCounts[k]++;
+
+        if (depth >= depthCounts.length) {
+            depthCounts = Arrays.copyOf(depthCounts, Math.max(depth + 1, 2 * depthCounts.length));
+        }
+        depthCounts[depth]++;
+        maxDepth = Math.max(maxDepth, depth);
+
+        int n = t.kidCount();
+        if (n >= fanOut.length) {
+            fanOut = Arrays.copyOf(fanOut, Math.max(n + 1, 2 * fanOut.length));
+        }
+        fanOut[n]++;
+        maxFanOut = Math.max(maxFanOut, n);
+
+        nodeBytes[k] += shallowSize(t.getClass());
+        kidsBytes[k] += ARRAYLIST + arrayListCapacityBytes(n);
+        String label = t.getLabel();
+        if (label.length() > 0) {
+            labelBytes[k] += stringBytes(label);
+        }
+        if (t.getDecoration() != null) {
+            decorated[k]++;
+        }
+
+        if (t.getKind() == NodeKind.FunctionDecl) {
+            openFunctions.push(t);
+            openCounts.push(nodes);
+        }
+    }
+
+    public void exit(AST t, int depth) {
+        if (!openFunctions.isEmpty() && openFunctions.peek() == t) {
+            openFunctions.pop();
+            int size = nodes - openCounts.pop() + 1;
+            functions.add(new FunctionSize(t, size));
+        }
+    }
+
+    public Object finish() {
+        return this;
+    }
+
+/**
+ *  @return the number of nodes seen
+*/
+    public int getNodeCount() {
+        return nodes;
+    }
+
+/**
+ *  @return the number of nodes of the given kind
+*/
+    public int getCount(NodeKind kind) {
+        return kindCounts[kind.ordinal()];
+    }
+
+/**
+ *  @return the number of nodes at each depth, as CountVisitor.getCount
+*/
+    public int[] getDepthCounts() {
+        return Arrays.copyOf(depthCounts, maxDepth + 1);
+    }
+
+/**
+ *  @return element i is the number of nodes with i kids
+*/
+    public int[] getFanOut() {
+        return Arrays.copyOf(fanOut, maxFanOut + 1);
+    }
+
+/**
+ *  @return the estimated heap retained by the whole tree, in bytes
+*/
+    public long getEstimatedBytes() {
+        long total = 0;
+        for (int k = 0; k < nodeBytes.length; k++) {
+            total += nodeBytes[k] + kidsBytes[k] + labelBytes[k];
+        }
+        return total;
+    }
+
+/**
+ *  write the report as one JSON object
+*/
+    public void writeJson(Writer w) throws IOException {
+        PrintWriter out = new PrintWriter(new BufferedWriter(w));
+        out.println("{");
+        out.println("  \"nodes\": " + nodes + ",");
+        out.println("  \"maxDepth\": " + maxDepth + ",");
+        out.println("  \"estimatedBytes\": " + getEstimatedBytes() + ",");
+
+        out.print("  \"kinds\": {");
+        String sep = "";
+        for (NodeKind kind : NodeKind.values()) {
+            if (kindCounts[kind.ordinal()] > 0) {
+                out.print(sep + "\"" + kind.name() + "\": " + kindCounts[kind.ordinal()]);
+                sep = ", ";
+            }
+        }
+        out.println("},");
+
+        out.println("  \"depths\": " + Arrays.toString(getDepthCounts()) + ",");
+        out.println("  \"fanOut\": " + Arrays.toString(getFanOut()) + ",");
+
+        out.print("  \"largestFunctions\": [");
+        sep = "";
+        for (FunctionSize f : largestFunctions()) {
+            out.print(sep + "\n    {\"name\": " + quote(f.name) + ", \"node\": " + f.nodeNum
+                + ", \"nodes\": " + f.size + "}");
+            sep = ",";
+        }
+        out.println(sep.length() > 0 ? "\n  ]," : "],");
+
+        out.print("  \"heap\": [");
+        sep = "";
+        for (NodeKind kind : NodeKind.values()) {
+            int k = kind.ordinal();
+            if (kindCounts[k] == 0) {
+                continue;
+            }
+            out.print(sep + "\n    {\"kind\": \"" + kind.name() + "\", \"count\": " + kindCounts[k]
+                + ", \"nodeBytes\": " + nodeBytes[k] + ", \"kidsBytes\": " + kidsBytes[k]
+                + ", \"labelBytes\": " + labelBytes[k] + ", \"decorated\": " + decorated[k] + "}");
+            sep = ",";
+        }
+        out.println(sep.length() > 0 ? "\n  ]" : "]");
+        out.println("}");
+        out.flush();
+    }
+
+    private List<FunctionSize> largestFunctions() {
+        ArrayList<FunctionSize> sorted = new ArrayList<FunctionSize>(functions);
+        Collections.sort(sorted, new Comparator<FunctionSize>() {
+            public int compare(FunctionSize a, FunctionSize b) {
+                return (a.size != b.size) ? Integer.compare(b.size, a.size)
+                                          : Integer.compare(a.nodeNum, b.nodeNum);
+            }
+        });
+        return sorted.subList(0, Math.min(topFunctions, sorted.size()));
+    }
+
+    private static class FunctionSize {
+        String name;
+        int nodeNum;
+        int size;
+
+        FunctionSize(AST t, int size) {
+            AST id = t.getKid(2);
+            this.name = (id != null && id.getSymbol() != null) ? id.getSymbol().toString() : "?";
+            this.nodeNum = t.getNodeNum();
+            this.size = size;
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder b = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                b.append('\\').append(c);
+            } else if (c < 0x20) {
+                b.append(String.format("\\u%04x", (int)c));
+            } else {
+                b.append(c);
+            }
+        }
+        return b.append('"').toString();
+    }
+
+    private static int align(long n) {
+        return (int)((n + ALIGN - 1) / ALIGN * ALIGN);
+    }
+
+    // estimated size of an instance of c: header plus its instance fields
+    private static synchronized int shallowSize(Class<?> c) {
+        Integer size = shallowSizes.get(c);
+        if (size == null) {
+            long bytes = HEADER;
+            for (Class<?> k = c; k != null; k = k.getSuperclass()) {
+                for (Field f : k.getDeclaredFields()) {
+                    if (!Modifier.isStatic(f.getModifiers())) {
+                        bytes += fieldSize(f.getType());
+                    }
+                }
+            }
+            size = align(bytes);
+            shallowSizes.put(c, size);
+        }
+        return size;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        if (type == byte.class || type == boolean.class) return 1;
+        return REF;
+    }
+
+    // an empty kids list shares the JDK's empty array; the first add
+    // allocates 10 slots and each later growth adds half again
+    private static int arrayListCapacityBytes(int size) {
+        if (size == 0) {
+            return 0;
+        }
+        int capacity = 10;
+        while (capacity < size) {
+            capacity += capacity >> 1;
+        }
+        return align(HEADER + 4 + (long)REF * capacity);
+    }
+
+    private static int stringBytes(String s) {
+        return align(HEADER + REF + 4 + 1 + 1) + align(HEADER + 4 + s.length());
+    }
+}
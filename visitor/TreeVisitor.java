@@ -0,0 +1,80 @@
+package visitor;
+
+import ast.*;
+
+/**
+ *  TreeVisitor is the typed counterpart of ASTVisitor: each visit method
+ *  receives the node with its own class (no casts needed) plus a context
+ *  object supplied by the caller, and returns a result of type R<br>
+ *  Every visit method defaults to visitChildren, which visits the kids in
+ *  order and combines their results with aggregateResult; a subclass only
+ *  overrides the methods for the nodes it cares about<br>
+ *  e.g. a visitor that counts IdTrees:
+ *  <pre>
+ *  class IdCounter extends TreeVisitor&lt;Integer,Void&gt; {
+ *      protected Integer defaultResult() { return 0; }
+ *      protected Integer aggregateResult(Integer a, Integer b) { return a + b; }
+ *      public Integer visitIdTree(IdTree t, Void context) { return 1; }
+ *  }
+ *  </pre>
+ *  @param <R> the type returned by the visit methods
+ *  @param <C> the type of the context passed down the tree
+*/
+public abstract class TreeVisitor<R, C> {
+
+/**
+ *  visit the kids of t in order
+ *  @return the aggregate of the kids' results, starting with defaultResult()
+*/
+    public R visitChildren(AST t, C context) {
+        R result = defaultResult();
+        for (AST kid : t.getKids()) {
+            result = aggregateResult(result, kid.accept(this, context));
+        }
+        return result;
+    }
+
+/**
+ *  @return the result for a node with no kids; null unless overridden
+*/
+    protected R defaultResult() {
+        return null;
+    }
+
+/**
+ *  @param aggregate is the result so far
+ *  @param next is the result of visiting the next kid
+ *  @return the combined result; the last kid's result unless overridden
+*/
+    protected R aggregateResult(R aggregate, R next) {
+        return next;
+    }
+
+    public R visitProgramTree(ProgramTree t, C context) { return visitChildren(t, context); }
+    public R visitBlockTree(BlockTree t, C context) { return visitChildren(t, context); }
+    public R visitFunctionDeclTree(FunctionDeclTree t, C context) { return visitChildren(t, context); }
+    public R visitCallTree(CallTree t, C context) { return visitChildren(t, context); }
+    public R visitDeclTree(DeclTree t, C context) { return visitChildren(t, context); }
+    public R visitIntTypeTree(IntTypeTree t, C context) { return visitChildren(t, context); }
+    public R visitBoolTypeTree(BoolTypeTree t, C context) { return visitChildren(t, context); }
+    public R visitFormalsTree(FormalsTree t, C context) { return visitChildren(t, context); }
+    public R visitActualArgsTree(ActualArgsTree t, C context) { return visitChildren(t, context); }
+    public R visitIfTree(IfTree t, C context) { return visitChildren(t, context); }
+    public R visitWhileTree(WhileTree t, C context) { return visitChildren(t, context); }
+    public R visitReturnTree(ReturnTree t, C context) { return visitChildren(t, context); }
+    public R visitAssignTree(AssignTree t, C context) { return visitChildren(t, context); }
+    public R visitIntTree(IntTree t, C context) { return visitChildren(t, context); }
+    public R visitIdTree(IdTree t, C context) { return visitChildren(t, context); }
+    public R visitRelOpTree(RelOpTree t, C context) { return visitChildren(t, context); }
+    public R visitAddOpTree(AddOpTree t, C context) { return visitChildren(t, context); }
+    public R visitMultOpTree(MultOpTree t, C context) { return visitChildren(t, context); }
+    public R visitSwitchTree(SwitchTree t, C context) { return visitChildren(t, context); }
+    public R visitCaseTree(CaseTree t, C context) { return visitChildren(t, context); }
+    public R visitSwitchBlockTree(SwitchBlockTree t, C context) { return visitChildren(t, context); }
+    public R visitDefaultTree(DefaultTree t, C context) { return visitChildren(t, context); }
+    public R visitUnlessTree(UnlessTree t, C context) { return visitChildren(t, context); }
+    public R visitStringTypeTree(StringTypeTree t, C context) { return visitChildren(t, context); }
+    public R visitCharTree(CharTree t, C context) { return visitChildren(t, context); }
+    public R visitStringLitTree(StringLitTree t, C context) { return visitChildren(t, context); }
+    public R visitCharLitTree(CharLitTree t, C context) { return visitChildren(t, context); }
+}